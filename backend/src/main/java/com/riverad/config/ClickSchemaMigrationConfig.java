@@ -0,0 +1,119 @@
+package com.riverad.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 点击相关表的结构迁移。生产环境 ddl-auto 为 validate，不会建表或修改已有列，结构不符时拒绝启动，
+ * 因此在 JPA 初始化之前在 PostgreSQL 上补齐：affiliate_clicks.click_id 由字符型转为 uuid，
+ * 补充后来新增的列（已有行取默认值），创建汇总表 affiliate_click_rollups。每一步都先检查现状，可重复执行。
+ * 分区改造在启动完成后才执行，迁移总是先于它完成。已有数据含非法 UUID 时转换失败，直接终止启动。
+ */
+@Configuration
+public class ClickSchemaMigrationConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickSchemaMigrationConfig.class);
+
+    private static final String COLUMN_TYPE_SQL = "SELECT data_type FROM information_schema.columns " +
+            "WHERE table_schema = current_schema() AND table_name = 'affiliate_clicks' AND column_name = ?";
+
+    private static final String CONVERT_CLICK_ID_SQL =
+            "ALTER TABLE affiliate_clicks ALTER COLUMN click_id TYPE uuid USING click_id::uuid";
+
+    private static final String CREATE_ROLLUPS_SQL = "CREATE TABLE IF NOT EXISTS affiliate_click_rollups (" +
+            "id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "rollup_date date NOT NULL, " +
+            "deal_id bigint NOT NULL, " +
+            "clicks bigint NOT NULL DEFAULT 0, " +
+            "suspicious_clicks bigint NOT NULL DEFAULT 0, " +
+            "conversions bigint NOT NULL DEFAULT 0, " +
+            "commission_amount double precision, " +
+            "CONSTRAINT uk_click_rollups_date_deal UNIQUE (rollup_date, deal_id))";
+
+    /**
+     * 迁移结果本身不被使用，只作为 EntityManagerFactory 的前置依赖。
+     */
+    @Bean
+    public ClickSchemaMigration clickSchemaMigration(DataSource dataSource) {
+        if (!isPostgres(dataSource)) {
+            return new ClickSchemaMigration(List.of());
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<String> applied = new ArrayList<>();
+        convertClickId(jdbcTemplate, applied);
+        addClickColumn(jdbcTemplate, applied, "suspicious", "boolean NOT NULL DEFAULT false");
+        // 历史转化没有订单金额，保持为空，佣金重算时跳过
+        addClickColumn(jdbcTemplate, applied, "order_amount", "double precision");
+        if (!tableExists(jdbcTemplate, "affiliate_click_rollups")) {
+            jdbcTemplate.execute(CREATE_ROLLUPS_SQL);
+            applied.add("create affiliate_click_rollups");
+            log.info("Created affiliate_click_rollups");
+        }
+        return new ClickSchemaMigration(applied);
+    }
+
+    private static void convertClickId(JdbcTemplate jdbcTemplate, List<String> applied) {
+        List<String> types = jdbcTemplate.queryForList(COLUMN_TYPE_SQL, String.class, "click_id");
+        if (types.isEmpty() || "uuid".equalsIgnoreCase(types.get(0))) {
+            return;
+        }
+        log.info("Converting affiliate_clicks.click_id from {} to uuid", types.get(0));
+        try {
+            jdbcTemplate.execute(CONVERT_CLICK_ID_SQL);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Failed to convert affiliate_clicks.click_id from " + types.get(0) +
+                    " to uuid; remove or fix rows whose click_id is not a UUID and restart", e);
+        }
+        applied.add("convert affiliate_clicks.click_id to uuid");
+        log.info("Converted affiliate_clicks.click_id to uuid");
+    }
+
+    /**
+     * 表尚不存在时由 Hibernate 建表，这里只给已有的表补列。
+     */
+    private static void addClickColumn(JdbcTemplate jdbcTemplate, List<String> applied, String column,
+                                       String definition) {
+        if (!tableExists(jdbcTemplate, "affiliate_clicks")
+                || !jdbcTemplate.queryForList(COLUMN_TYPE_SQL, String.class, column).isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE affiliate_clicks ADD COLUMN IF NOT EXISTS " + column + " " + definition);
+        applied.add("add affiliate_clicks." + column);
+        log.info("Added affiliate_clicks.{} ({})", column, definition);
+    }
+
+    private static boolean tableExists(JdbcTemplate jdbcTemplate, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                table));
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not detect database type for click schema migration", e);
+        }
+    }
+
+    public record ClickSchemaMigration(List<String> applied) {}
+
+    @Component
+    static class JpaDependsOnClickSchemaMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        JpaDependsOnClickSchemaMigration() {
+            super("clickSchemaMigration");
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.riverad.controller;
 
-import com.riverad.model.Deal;
+import com.riverad.dto.ConversionImportResult;
+import com.riverad.service.AffiliateLinkDirectory;
 import com.riverad.service.AffiliateService;
-import com.riverad.service.DealService;
+import com.riverad.service.ClickRateLimiter;
+import com.riverad.service.ConversionImportService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.Optional;
 
 @RestController
@@ -19,7 +22,13 @@ public class AffiliateController {
     private AffiliateService affiliateService;
     
     @Autowired
-    private DealService dealService;
+    private AffiliateLinkDirectory affiliateLinkDirectory;
+    
+    @Autowired
+    private ClickRateLimiter clickRateLimiter;
+    
+    @Autowired
+    private ConversionImportService conversionImportService;
 
     @PostMapping("/track")
     public ResponseEntity<String> trackClick(
@@ -32,7 +41,7 @@ public class AffiliateController {
             String userAgent = request.getHeader("User-Agent");
             String referrer = request.getHeader("Referer");
             
-            if (affiliateService.isRecentClick(ipAddress, 1)) {
+            if (!clickRateLimiter.tryAcquire(ClickRateLimiter.Endpoint.TRACK, ipAddress, dealId)) {
                 return ResponseEntity.badRequest().body("点击过于频繁，请稍后再试");
             }
             
@@ -52,20 +61,23 @@ public class AffiliateController {
             HttpServletRequest request) {
         
         try {
-            Optional<Deal> dealOpt = dealService.getDealById(deal);
-            if (dealOpt.isEmpty()) {
+            Optional<String> affiliateUrl = affiliateLinkDirectory.resolve(deal);
+            if (affiliateUrl.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
             
-            Deal dealEntity = dealOpt.get();
             String ipAddress = getClientIpAddress(request);
             String userAgent = request.getHeader("User-Agent");
             String referrer = request.getHeader("Referer");
             
-            affiliateService.trackClick(deal, user > 0 ? user : null, ipAddress, userAgent, referrer);
+            // 超出频率的跳转照常放行，只是不计点击
+            if (clickRateLimiter.tryAcquire(ClickRateLimiter.Endpoint.REDIRECT, ipAddress, deal)) {
+                affiliateService.trackRedirect(deal, user > 0 ? user : null, ipAddress, userAgent, referrer,
+                        clickId);
+            }
             
             return ResponseEntity.status(HttpStatus.FOUND)
-                    .header("Location", dealEntity.getAffiliateUrl())
+                    .header("Location", affiliateUrl.get())
                     .build();
                     
         } catch (Exception e) {
@@ -87,6 +99,42 @@ public class AffiliateController {
         }
     }
 
+    /**
+     * 批量导入转化回传，请求体直接为 CSV 或 NDJSON 文件内容，边读边处理，不受上传文件大小限制。
+     */
+    @PostMapping("/conversions/import")
+    public ResponseEntity<?> importConversions(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) throws IOException {
+        
+        try {
+            ConversionImportService.Format importFormat =
+                    ConversionImportService.Format.of(format, request.getContentType());
+            ConversionImportResult result =
+                    conversionImportService.importConversions(request.getInputStream(), importFormat);
+            return ResponseEntity.ok(result);
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 佣金比例调整后按当前规则重算最近一段时间的转化佣金，返回更新的转化数。
+     */
+    @PostMapping("/commissions/recalculate")
+    public ResponseEntity<?> recalculateCommissions(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) Long storeId) {
+        
+        try {
+            return ResponseEntity.ok(affiliateService.recalculateCommissions(days, storeId));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/stats/clicks/{dealId}")
     public ResponseEntity<Long> getDealClicks(
             @PathVariable Long dealId,
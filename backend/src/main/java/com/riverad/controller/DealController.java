@@ -1,9 +1,16 @@
 package com.riverad.controller;
 
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import com.riverad.dto.DealCounts;
+import com.riverad.dto.DealFacets;
+import com.riverad.dto.DealQuery;
+import com.riverad.dto.DealSuggestion;
 import com.riverad.model.Deal;
 import com.riverad.service.DealService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,47 +25,143 @@ public class DealController {
     private DealService dealService;
 
     @GetMapping("/public")
-    public ResponseEntity<Page<Deal>> getDeals(
+    public ResponseEntity<?> getDeals(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        Page<Deal> deals = dealService.getActiveDeals(page, size);
-        return ResponseEntity.ok(deals);
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "newest") String sortBy,
+            @RequestParam(required = false) String cursor) {
+        try {
+            if (cursor != null) {
+                CursorPage<DealCard> deals = dealService.getActiveDealsAfter(cursor, sortBy, size);
+                return ResponseEntity.ok(deals);
+            }
+            Page<DealCard> deals = dealService.getActiveDeals(sortBy, page, size);
+            return ResponseEntity.ok(deals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/public/search")
-    public ResponseEntity<Page<Deal>> searchDeals(
+    public ResponseEntity<?> searchDeals(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        Page<Deal> deals = dealService.searchDeals(keyword, page, size);
-        return ResponseEntity.ok(deals);
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
+        try {
+            if (cursor != null) {
+                CursorPage<DealCard> deals = dealService.searchDealsAfter(keyword, cursor, size);
+                return ResponseEntity.ok(deals);
+            }
+            if (!withTotal) {
+                Slice<DealCard> deals = dealService.searchDealsSlice(keyword, page, size);
+                return ResponseEntity.ok(deals);
+            }
+            Page<DealCard> deals = dealService.searchDeals(keyword, page, size);
+            return ResponseEntity.ok(deals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/public/suggest")
+    public ResponseEntity<?> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+        try {
+            List<DealSuggestion> suggestions = dealService.suggest(prefix, limit);
+            return ResponseEntity.ok(suggestions);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 多条件筛选：categoryIds、storeIds、currencies 可传多个值，另支持 featured、
+     * minPrice/maxPrice、minDiscount，match=any 时各条件取并集。
+     */
+    @GetMapping("/public/query")
+    public ResponseEntity<?> queryDeals(
+            DealQuery query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "newest") String sortBy) {
+        try {
+            Page<DealCard> deals = dealService.queryDeals(query, sortBy, page, size);
+            return ResponseEntity.ok(deals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/public/facets")
+    public ResponseEntity<?> getDealFacets(
+            DealQuery query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "newest") String sortBy) {
+        try {
+            DealFacets facets = dealService.getDealFacets(query, sortBy, page, size);
+            return ResponseEntity.ok(facets);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/public/category/{categoryId}")
-    public ResponseEntity<Page<Deal>> getDealsByCategory(
+    public ResponseEntity<?> getDealsByCategory(
             @PathVariable Long categoryId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        Page<Deal> deals = dealService.getDealsByCategory(categoryId, page, size);
-        return ResponseEntity.ok(deals);
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        try {
+            if (cursor != null) {
+                CursorPage<DealCard> deals = dealService.getDealsByCategoryAfter(categoryId, cursor, size);
+                return ResponseEntity.ok(deals);
+            }
+            Page<DealCard> deals = dealService.getDealsByCategory(categoryId, page, size);
+            return ResponseEntity.ok(deals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/public/store/{storeId}")
-    public ResponseEntity<Page<Deal>> getDealsByStore(
+    public ResponseEntity<?> getDealsByStore(
             @PathVariable Long storeId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        Page<Deal> deals = dealService.getDealsByStore(storeId, page, size);
-        return ResponseEntity.ok(deals);
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        try {
+            if (cursor != null) {
+                CursorPage<DealCard> deals = dealService.getDealsByStoreAfter(storeId, cursor, size);
+                return ResponseEntity.ok(deals);
+            }
+            Page<DealCard> deals = dealService.getDealsByStore(storeId, page, size);
+            return ResponseEntity.ok(deals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/public/popular")
-    public ResponseEntity<List<Deal>> getPopularDeals(
+    public ResponseEntity<List<DealCard>> getPopularDeals(
             @RequestParam(defaultValue = "10") int limit) {
-        List<Deal> deals = dealService.getPopularDeals(limit);
+        List<DealCard> deals = dealService.getPopularDeals(limit);
         return ResponseEntity.ok(deals);
     }
 
+    @GetMapping("/public/batch")
+    public ResponseEntity<?> getDealsBatch(@RequestParam List<Long> ids) {
+        try {
+            List<DealCard> deals = dealService.getDealCardsByIds(ids);
+            return ResponseEntity.ok(deals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/public/{id}")
     public ResponseEntity<Deal> getDeal(@PathVariable Long id) {
         Optional<Deal> deal = dealService.getDealById(id);
@@ -75,6 +178,11 @@ public class DealController {
         return ResponseEntity.ok("点击记录成功");
     }
 
+    @GetMapping("/public/counts")
+    public ResponseEntity<DealCounts> getDealCounts() {
+        return ResponseEntity.ok(dealService.getDealCounts());
+    }
+
     @GetMapping("/public/stats")
     public ResponseEntity<String> getStats() {
         long totalDeals = dealService.getTotalActiveDeals();
@@ -0,0 +1,12 @@
+package com.riverad.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 待落库的一次联盟点击，由请求线程生成后交给写入队列，userId 可为空。
+ * suspicious 表示反作弊评分判定为可疑但仍保留记录。
+ */
+public record ClickEvent(UUID clickId, Long dealId, Long userId, String ipAddress,
+                         String userAgent, String referrer, LocalDateTime clickTimestamp, boolean suspicious) {
+}
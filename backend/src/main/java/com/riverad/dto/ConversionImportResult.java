@@ -0,0 +1,181 @@
+package com.riverad.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量转化导入结果：各状态的行数汇总，以及未成功记录的行明细（按行号，超出上限的只计数不列出）。
+ */
+public class ConversionImportResult {
+
+    public enum Status { INVALID, NOT_FOUND, ALREADY_CONVERTED, DUPLICATE, FAILED }
+
+    public static class RowResult {
+
+        private long line;
+        private String clickId;
+        private Status status;
+        private String message;
+
+        public RowResult() {}
+
+        public RowResult(long line, String clickId, Status status, String message) {
+            this.line = line;
+            this.clickId = clickId;
+            this.status = status;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public void setLine(long line) {
+            this.line = line;
+        }
+
+        public String getClickId() {
+            return clickId;
+        }
+
+        public void setClickId(String clickId) {
+            this.clickId = clickId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+
+    private long total;
+    private long converted;
+    private long invalid;
+    private long notFound;
+    private long alreadyConverted;
+    private long duplicate;
+    private long failed;
+    private List<RowResult> rejected = new ArrayList<>();
+    private boolean rejectedTruncated;
+    private long elapsedMs;
+
+    private int maxRejected;
+
+    public ConversionImportResult() {}
+
+    public ConversionImportResult(int maxRejected) {
+        this.maxRejected = maxRejected;
+    }
+
+    public void accept() {
+        total++;
+        converted++;
+    }
+
+    public void reject(long line, String clickId, Status status, String message) {
+        total++;
+        switch (status) {
+            case INVALID -> invalid++;
+            case NOT_FOUND -> notFound++;
+            case ALREADY_CONVERTED -> alreadyConverted++;
+            case DUPLICATE -> duplicate++;
+            case FAILED -> failed++;
+        }
+        if (rejected.size() < maxRejected) {
+            rejected.add(new RowResult(line, clickId, status, message));
+        } else {
+            rejectedTruncated = true;
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getConverted() {
+        return converted;
+    }
+
+    public void setConverted(long converted) {
+        this.converted = converted;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+
+    public long getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(long notFound) {
+        this.notFound = notFound;
+    }
+
+    public long getAlreadyConverted() {
+        return alreadyConverted;
+    }
+
+    public void setAlreadyConverted(long alreadyConverted) {
+        this.alreadyConverted = alreadyConverted;
+    }
+
+    public long getDuplicate() {
+        return duplicate;
+    }
+
+    public void setDuplicate(long duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<RowResult> getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(List<RowResult> rejected) {
+        this.rejected = rejected;
+    }
+
+    public boolean isRejectedTruncated() {
+        return rejectedTruncated;
+    }
+
+    public void setRejectedTruncated(boolean rejectedTruncated) {
+        this.rejectedTruncated = rejectedTruncated;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+}
@@ -0,0 +1,71 @@
+package com.riverad.dto;
+
+import com.riverad.model.Category;
+import com.riverad.model.Deal;
+import com.riverad.model.Store;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 列表页使用的扁平只读投影，只包含卡片展示所需字段，不含长描述和联盟链接。
+ */
+public record DealCard(
+        Long id,
+        String titleEn,
+        String titleZh,
+        String shortDescriptionEn,
+        String shortDescriptionZh,
+        BigDecimal originalPrice,
+        BigDecimal salePrice,
+        String currency,
+        Integer discountPercentage,
+        String imageUrl,
+        String couponCode,
+        LocalDateTime endDate,
+        Boolean isFeatured,
+        Integer clickCount,
+        LocalDateTime createdAt,
+        Long storeId,
+        String storeName,
+        String storeSlug,
+        Long categoryId,
+        String categoryNameEn,
+        String categoryNameZh) {
+
+    public DealCard withClickCount(Integer clicks) {
+        return new DealCard(id, titleEn, titleZh, shortDescriptionEn, shortDescriptionZh, originalPrice, salePrice,
+                currency, discountPercentage, imageUrl, couponCode, endDate, isFeatured, clicks, createdAt,
+                storeId, storeName, storeSlug, categoryId, categoryNameEn, categoryNameZh);
+    }
+
+    /**
+     * 从已加载 store 和 category 的实体转换，调用方需保证关联已初始化。
+     */
+    public static DealCard from(Deal deal) {
+        Store store = deal.getStore();
+        Category category = deal.getCategory();
+        return new DealCard(
+                deal.getId(),
+                deal.getTitleEn(),
+                deal.getTitleZh(),
+                deal.getShortDescriptionEn(),
+                deal.getShortDescriptionZh(),
+                deal.getOriginalPrice(),
+                deal.getSalePrice(),
+                deal.getCurrency(),
+                deal.getDiscountPercentage(),
+                deal.getImageUrl(),
+                deal.getCouponCode(),
+                deal.getEndDate(),
+                deal.getIsFeatured(),
+                deal.getClickCount(),
+                deal.getCreatedAt(),
+                store != null ? store.getId() : null,
+                store != null ? store.getName() : null,
+                store != null ? store.getSlug() : null,
+                category != null ? category.getId() : null,
+                category != null ? category.getNameEn() : null,
+                category != null ? category.getNameZh() : null);
+    }
+}
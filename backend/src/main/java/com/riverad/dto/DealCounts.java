@@ -0,0 +1,57 @@
+package com.riverad.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 活跃优惠数量汇总，供前端徽标展示；随快照定期刷新，可能略有滞后。
+ */
+public class DealCounts {
+
+    private long total;
+    private Map<Long, Integer> byCategory;
+    private Map<Long, Integer> byStore;
+    private LocalDateTime refreshedAt;
+
+    public DealCounts() {}
+
+    public DealCounts(long total, Map<Long, Integer> byCategory, Map<Long, Integer> byStore,
+                      LocalDateTime refreshedAt) {
+        this.total = total;
+        this.byCategory = byCategory;
+        this.byStore = byStore;
+        this.refreshedAt = refreshedAt;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<Long, Integer> getByCategory() {
+        return byCategory;
+    }
+
+    public void setByCategory(Map<Long, Integer> byCategory) {
+        this.byCategory = byCategory;
+    }
+
+    public Map<Long, Integer> getByStore() {
+        return byStore;
+    }
+
+    public void setByStore(Map<Long, Integer> byStore) {
+        this.byStore = byStore;
+    }
+
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public void setRefreshedAt(LocalDateTime refreshedAt) {
+        this.refreshedAt = refreshedAt;
+    }
+}
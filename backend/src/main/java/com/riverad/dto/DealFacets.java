@@ -0,0 +1,80 @@
+package com.riverad.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * 筛选结果页及各分面取值的数量，前端侧边栏一次请求即可渲染。
+ * 计数为 0 的分类、商店和货币不返回；折扣区间和精选标记总是全部返回。
+ */
+public class DealFacets {
+
+    private Page<DealCard> deals;
+    private Map<Long, Integer> categories;
+    private Map<Long, Integer> stores;
+    private Map<String, Integer> currencies;
+    private Map<String, Integer> featured;
+    private Map<String, Integer> discountBands;
+
+    public DealFacets() {}
+
+    public DealFacets(Page<DealCard> deals, Map<Long, Integer> categories, Map<Long, Integer> stores,
+                      Map<String, Integer> currencies, Map<String, Integer> featured,
+                      Map<String, Integer> discountBands) {
+        this.deals = deals;
+        this.categories = categories;
+        this.stores = stores;
+        this.currencies = currencies;
+        this.featured = featured;
+        this.discountBands = discountBands;
+    }
+
+    public Page<DealCard> getDeals() {
+        return deals;
+    }
+
+    public void setDeals(Page<DealCard> deals) {
+        this.deals = deals;
+    }
+
+    public Map<Long, Integer> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<Long, Integer> categories) {
+        this.categories = categories;
+    }
+
+    public Map<Long, Integer> getStores() {
+        return stores;
+    }
+
+    public void setStores(Map<Long, Integer> stores) {
+        this.stores = stores;
+    }
+
+    public Map<String, Integer> getCurrencies() {
+        return currencies;
+    }
+
+    public void setCurrencies(Map<String, Integer> currencies) {
+        this.currencies = currencies;
+    }
+
+    public Map<String, Integer> getFeatured() {
+        return featured;
+    }
+
+    public void setFeatured(Map<String, Integer> featured) {
+        this.featured = featured;
+    }
+
+    public Map<String, Integer> getDiscountBands() {
+        return discountBands;
+    }
+
+    public void setDiscountBands(Map<String, Integer> discountBands) {
+        this.discountBands = discountBands;
+    }
+}
@@ -0,0 +1,86 @@
+package com.riverad.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 多条件优惠查询参数。同一维度内多个取值为"或"，不同维度之间按 match 组合：
+ * all（默认）要求全部满足，any 满足任一即可。
+ */
+public class DealQuery {
+
+    private List<Long> categoryIds;
+    private List<Long> storeIds;
+    private List<String> currencies;
+    private Boolean featured;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Integer minDiscount;
+    private String match = "all";
+
+    public DealQuery() {}
+
+    public List<Long> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public void setCategoryIds(List<Long> categoryIds) {
+        this.categoryIds = categoryIds;
+    }
+
+    public List<Long> getStoreIds() {
+        return storeIds;
+    }
+
+    public void setStoreIds(List<Long> storeIds) {
+        this.storeIds = storeIds;
+    }
+
+    public List<String> getCurrencies() {
+        return currencies;
+    }
+
+    public void setCurrencies(List<String> currencies) {
+        this.currencies = currencies;
+    }
+
+    public Boolean getFeatured() {
+        return featured;
+    }
+
+    public void setFeatured(Boolean featured) {
+        this.featured = featured;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Integer getMinDiscount() {
+        return minDiscount;
+    }
+
+    public void setMinDiscount(Integer minDiscount) {
+        this.minDiscount = minDiscount;
+    }
+
+    public String getMatch() {
+        return match;
+    }
+
+    public void setMatch(String match) {
+        this.match = match;
+    }
+}
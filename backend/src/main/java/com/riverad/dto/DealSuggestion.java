@@ -0,0 +1,7 @@
+package com.riverad.dto;
+
+/**
+ * 搜索框联想词。type 为 deal、store 或 category，id 为对应实体的ID，前端据此跳转。
+ */
+public record DealSuggestion(String text, String type, Long id) {
+}
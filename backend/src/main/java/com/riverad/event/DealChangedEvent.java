@@ -0,0 +1,41 @@
+package com.riverad.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 优惠信息发生新增、修改或删除时发布的事件，内存索引据此刷新。
+ */
+public class DealChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Long dealId;
+    private final Type type;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+
+    public DealChangedEvent(Long dealId, Type type, LocalDateTime startDate, LocalDateTime endDate) {
+        this.dealId = dealId;
+        this.type = type;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public Long getDealId() {
+        return dealId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+}
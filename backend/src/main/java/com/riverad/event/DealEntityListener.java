@@ -0,0 +1,38 @@
+package com.riverad.event;
+
+import com.riverad.model.Deal;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA生命周期监听器：把Deal的写操作转换为 {@link DealChangedEvent}。
+ */
+@Component
+public class DealEntityListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onPersist(Deal deal) {
+        eventPublisher.publishEvent(changed(deal, DealChangedEvent.Type.CREATED));
+    }
+
+    @PostUpdate
+    public void onUpdate(Deal deal) {
+        eventPublisher.publishEvent(changed(deal, DealChangedEvent.Type.UPDATED));
+    }
+
+    @PostRemove
+    public void onRemove(Deal deal) {
+        eventPublisher.publishEvent(changed(deal, DealChangedEvent.Type.DELETED));
+    }
+
+    private DealChangedEvent changed(Deal deal, DealChangedEvent.Type type) {
+        return new DealChangedEvent(deal.getId(), type, deal.getStartDate(), deal.getEndDate());
+    }
+}
@@ -0,0 +1,19 @@
+package com.riverad.event;
+
+import com.riverad.service.DealSnapshot;
+
+/**
+ * 活跃优惠快照被替换（全量重建或剔除过期）后发布，派生的内存结构据此同步。
+ */
+public class DealSnapshotRebuiltEvent {
+
+    private final DealSnapshot snapshot;
+
+    public DealSnapshotRebuiltEvent(DealSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public DealSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,17 @@
+package com.riverad.event;
+
+/**
+ * 商店新增、修改或删除时发布的事件，佣金比例表据此刷新。
+ */
+public class StoreChangedEvent {
+
+    private final Long storeId;
+
+    public StoreChangedEvent(Long storeId) {
+        this.storeId = storeId;
+    }
+
+    public Long getStoreId() {
+        return storeId;
+    }
+}
@@ -0,0 +1,26 @@
+package com.riverad.event;
+
+import com.riverad.model.Store;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA生命周期监听器：把Store的写操作转换为 {@link StoreChangedEvent}。
+ */
+@Component
+public class StoreEntityListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Store store) {
+        eventPublisher.publishEvent(new StoreChangedEvent(store.getId()));
+    }
+}
@@ -1,15 +1,22 @@
 package com.riverad.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
-@Table(name = "affiliate_clicks")
+@Table(name = "affiliate_clicks", indexes = {
+    @Index(name = "idx_affiliate_clicks_deal_time", columnList = "deal_id, click_timestamp"),
+    @Index(name = "idx_affiliate_clicks_time", columnList = "click_timestamp")
+})
 public class AffiliateClick {
 
+    // 按时间排序的 UUIDv7，数据库中为16字节 uuid 类型，对外编码见 ClickIdGenerator
     @Id
-    @Column(name = "click_id", length = 36)
-    private String clickId;
+    @Column(name = "click_id")
+    private UUID clickId;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "deal_id", nullable = false)
@@ -31,29 +38,38 @@ public class AffiliateClick {
     @Column(name = "click_timestamp", nullable = false)
     private LocalDateTime clickTimestamp;
 
+    // 带数据库默认值，给已有数据的表补列时旧行取 false
+    @ColumnDefault("false")
+    @Column(name = "suspicious", nullable = false)
+    private Boolean suspicious = false;
+
     @Column(name = "converted")
     private Boolean converted = false;
 
     @Column(name = "conversion_timestamp")
     private LocalDateTime conversionTimestamp;
 
+    // 保存订单金额，佣金比例调整后可据此重算佣金
+    @Column(name = "order_amount", precision = 10, scale = 2)
+    private Double orderAmount;
+
     @Column(name = "commission_amount", precision = 10, scale = 2)
     private Double commissionAmount;
 
     public AffiliateClick() {}
 
-    public AffiliateClick(String clickId, Deal deal, String ipAddress) {
+    public AffiliateClick(UUID clickId, Deal deal, String ipAddress) {
         this.clickId = clickId;
         this.deal = deal;
         this.ipAddress = ipAddress;
         this.clickTimestamp = LocalDateTime.now();
     }
 
-    public String getClickId() {
+    public UUID getClickId() {
         return clickId;
     }
 
-    public void setClickId(String clickId) {
+    public void setClickId(UUID clickId) {
         this.clickId = clickId;
     }
 
@@ -105,6 +121,14 @@ public class AffiliateClick {
         this.clickTimestamp = clickTimestamp;
     }
 
+    public Boolean getSuspicious() {
+        return suspicious;
+    }
+
+    public void setSuspicious(Boolean suspicious) {
+        this.suspicious = suspicious;
+    }
+
     public Boolean getConverted() {
         return converted;
     }
@@ -121,6 +145,14 @@ public class AffiliateClick {
         this.conversionTimestamp = conversionTimestamp;
     }
 
+    public Double getOrderAmount() {
+        return orderAmount;
+    }
+
+    public void setOrderAmount(Double orderAmount) {
+        this.orderAmount = orderAmount;
+    }
+
     public Double getCommissionAmount() {
         return commissionAmount;
     }
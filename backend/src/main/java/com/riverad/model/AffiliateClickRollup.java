@@ -0,0 +1,93 @@
+package com.riverad.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * 按天、按优惠汇总的点击数据。原始点击超过保留期后先汇总到此表再删除。
+ */
+@Entity
+@Table(name = "affiliate_click_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_click_rollups_date_deal", columnNames = {"rollup_date", "deal_id"})
+})
+public class AffiliateClickRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "deal_id", nullable = false)
+    private Long dealId;
+
+    @Column(name = "clicks", nullable = false)
+    private Long clicks = 0L;
+
+    @Column(name = "suspicious_clicks", nullable = false)
+    private Long suspiciousClicks = 0L;
+
+    @Column(name = "conversions", nullable = false)
+    private Long conversions = 0L;
+
+    @Column(name = "commission_amount", precision = 12, scale = 2)
+    private Double commissionAmount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getRollupDate() {
+        return rollupDate;
+    }
+
+    public void setRollupDate(LocalDate rollupDate) {
+        this.rollupDate = rollupDate;
+    }
+
+    public Long getDealId() {
+        return dealId;
+    }
+
+    public void setDealId(Long dealId) {
+        this.dealId = dealId;
+    }
+
+    public Long getClicks() {
+        return clicks;
+    }
+
+    public void setClicks(Long clicks) {
+        this.clicks = clicks;
+    }
+
+    public Long getSuspiciousClicks() {
+        return suspiciousClicks;
+    }
+
+    public void setSuspiciousClicks(Long suspiciousClicks) {
+        this.suspiciousClicks = suspiciousClicks;
+    }
+
+    public Long getConversions() {
+        return conversions;
+    }
+
+    public void setConversions(Long conversions) {
+        this.conversions = conversions;
+    }
+
+    public Double getCommissionAmount() {
+        return commissionAmount;
+    }
+
+    public void setCommissionAmount(Double commissionAmount) {
+        this.commissionAmount = commissionAmount;
+    }
+}
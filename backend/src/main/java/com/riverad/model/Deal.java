@@ -1,5 +1,6 @@
 package com.riverad.model;
 
+import com.riverad.event.DealEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
@@ -9,10 +10,13 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "deals", indexes = {
     @Index(name = "idx_deals_active_featured", columnList = "is_active, is_featured, created_at"),
-    @Index(name = "idx_deals_category", columnList = "category_id, is_active"),
-    @Index(name = "idx_deals_store", columnList = "store_id, is_active"),
+    @Index(name = "idx_deals_active_created", columnList = "is_active, created_at, id"),
+    @Index(name = "idx_deals_active_clicks", columnList = "is_active, click_count, id"),
+    @Index(name = "idx_deals_category", columnList = "category_id, is_active, created_at, id"),
+    @Index(name = "idx_deals_store", columnList = "store_id, is_active, created_at, id"),
     @Index(name = "idx_deals_price_range", columnList = "sale_price, currency, is_active")
 })
+@EntityListeners(DealEntityListener.class)
 public class Deal extends BaseEntity {
 
     @NotBlank(message = "英文标题不能为空")
@@ -80,6 +84,11 @@ public class Deal extends BaseEntity {
     @Column(name = "end_date")
     private LocalDateTime endDate;
 
+    @DecimalMin(value = "0.0", message = "佣金率不能小于0")
+    @DecimalMax(value = "1.0", message = "佣金率不能大于1")
+    @Column(name = "commission_rate")
+    private Double commissionRate;
+
     @Column(name = "is_active")
     private Boolean isActive = true;
 
@@ -272,6 +281,14 @@ public class Deal extends BaseEntity {
         this.endDate = endDate;
     }
 
+    public Double getCommissionRate() {
+        return commissionRate;
+    }
+
+    public void setCommissionRate(Double commissionRate) {
+        this.commissionRate = commissionRate;
+    }
+
     public Boolean getIsActive() {
         return isActive;
     }
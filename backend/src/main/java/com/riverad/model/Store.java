@@ -1,5 +1,6 @@
 package com.riverad.model;
 
+import com.riverad.event.StoreEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
@@ -9,6 +10,7 @@ import java.math.BigDecimal;
 @Table(name = "stores", indexes = {
     @Index(name = "idx_stores_active", columnList = "is_active, created_at")
 })
+@EntityListeners(StoreEntityListener.class)
 public class Store extends BaseEntity {
 
     @NotBlank(message = "商店名称不能为空")
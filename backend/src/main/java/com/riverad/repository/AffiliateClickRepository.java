@@ -2,15 +2,18 @@ package com.riverad.repository;
 
 import com.riverad.model.AffiliateClick;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 
 @Repository
-public interface AffiliateClickRepository extends JpaRepository<AffiliateClick, String> {
+public interface AffiliateClickRepository extends JpaRepository<AffiliateClick, UUID> {
     
     @Query("SELECT COUNT(a) FROM AffiliateClick a WHERE a.deal.id = :dealId AND a.clickTimestamp >= :startTime")
     long countClicksByDealAfter(@Param("dealId") Long dealId, @Param("startTime") LocalDateTime startTime);
@@ -21,8 +24,16 @@ public interface AffiliateClickRepository extends JpaRepository<AffiliateClick,
     @Query("SELECT SUM(a.commissionAmount) FROM AffiliateClick a WHERE a.converted = true AND a.conversionTimestamp >= :startTime")
     Double sumCommissionsAfter(@Param("startTime") LocalDateTime startTime);
     
-    @Query("SELECT a FROM AffiliateClick a WHERE a.ipAddress = :ip AND a.clickTimestamp >= :recentTime")
-    List<AffiliateClick> findRecentClicksByIp(@Param("ip") String ip, @Param("recentTime") LocalDateTime recentTime);
+    // 佣金重算：先取出时间范围内有可重算转化的优惠，再按佣金比例分组批量更新
+    @Query("SELECT DISTINCT a.deal.id FROM AffiliateClick a WHERE a.converted = true AND a.orderAmount IS NOT NULL " +
+           "AND a.conversionTimestamp >= :startTime")
+    List<Long> findConvertedDealIdsAfter(@Param("startTime") LocalDateTime startTime);
+    
+    @Modifying
+    @Query("UPDATE AffiliateClick a SET a.commissionAmount = a.orderAmount * :rate WHERE a.deal.id IN :dealIds " +
+           "AND a.converted = true AND a.orderAmount IS NOT NULL AND a.conversionTimestamp >= :startTime")
+    int recalculateCommissions(@Param("rate") Double rate, @Param("dealIds") Collection<Long> dealIds,
+                               @Param("startTime") LocalDateTime startTime);
     
     @Query("SELECT a FROM AffiliateClick a WHERE a.user.id = :userId ORDER BY a.clickTimestamp DESC")
     List<AffiliateClick> findClicksByUserId(@Param("userId") Long userId);
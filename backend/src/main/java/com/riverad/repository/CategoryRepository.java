@@ -13,7 +13,7 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     
     Optional<Category> findBySlug(String slug);
     
-    @Query("SELECT c FROM Category c WHERE c.isActive = true ORDER BY c.displayOrder ASC, c.nameEn ASC")
+    @Query("SELECT c FROM Category c WHERE c.isActive = true ORDER BY c.sortOrder ASC, c.nameEn ASC")
     List<Category> findAllActiveCategories();
     
     @Query("SELECT COUNT(c) FROM Category c WHERE c.isActive = true")
@@ -1,36 +1,134 @@
 package com.riverad.repository;
 
+import com.riverad.dto.DealCard;
 import com.riverad.model.Deal;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DealRepository extends JpaRepository<Deal, Long> {
     
-    @Query("SELECT d FROM Deal d WHERE d.isActive = true AND d.expiresAt > :now ORDER BY d.createdAt DESC")
-    Page<Deal> findActiveDeals(@Param("now") LocalDateTime now, Pageable pageable);
+    // 列表卡片投影：一次连接查询取出商店和分类名称，避免逐条懒加载
+    String DEAL_CARD_SELECT = "SELECT new com.riverad.dto.DealCard(" +
+            "d.id, d.titleEn, d.titleZh, d.shortDescriptionEn, d.shortDescriptionZh, " +
+            "d.originalPrice, d.salePrice, d.currency, d.discountPercentage, d.imageUrl, d.couponCode, " +
+            "d.endDate, d.isFeatured, d.clickCount, d.createdAt, " +
+            "s.id, s.name, s.slug, c.id, c.nameEn, c.nameZh) " +
+            "FROM Deal d LEFT JOIN d.store s LEFT JOIN d.category c ";
     
-    @Query("SELECT d FROM Deal d WHERE d.isActive = true AND d.expiresAt > :now AND " +
-           "(LOWER(d.titleEn) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(d.titleZh) LIKE LOWER(CONCAT('%', :keyword, '%')))")
-    Page<Deal> searchActiveDeals(@Param("keyword") String keyword, @Param("now") LocalDateTime now, Pageable pageable);
+    String KEYWORD_MATCH = "(LOWER(d.titleEn) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(d.titleZh) LIKE LOWER(CONCAT('%', :keyword, '%')))";
     
-    @Query("SELECT d FROM Deal d WHERE d.category.id = :categoryId AND d.isActive = true AND d.expiresAt > :now ORDER BY d.createdAt DESC")
-    Page<Deal> findActiveDealsByCategory(@Param("categoryId") Long categoryId, @Param("now") LocalDateTime now, Pageable pageable);
+    // 搜索直接查库时 is_active 只反映下线，尚未到开始时间的优惠仍需按时间排除（快照由 DealSnapshot 过滤）
+    String STARTED = "(d.startDate IS NULL OR d.startDate <= :now)";
     
-    @Query("SELECT d FROM Deal d WHERE d.store.id = :storeId AND d.isActive = true AND d.expiresAt > :now ORDER BY d.createdAt DESC")
-    Page<Deal> findActiveDealsByStore(@Param("storeId") Long storeId, @Param("now") LocalDateTime now, Pageable pageable);
+    // PostgreSQL 全文检索：英文标题和描述走 tsvector，标题另用三元组相似度兜住拼写差异和中文。
+    // 英文标题用 <%（word_similarity）：关键词只需与标题中的某个片段相近，短关键词对长标题也能命中
+    String PG_DOCUMENT = "to_tsvector('english', COALESCE(d.title_en, '') || ' ' || COALESCE(d.description_en, ''))";
     
-    @Query("SELECT d FROM Deal d WHERE d.isActive = true AND d.expiresAt > :now ORDER BY d.clickCount DESC")
-    List<Deal> findPopularDeals(@Param("now") LocalDateTime now, Pageable pageable);
+    String PG_MATCH = "d.is_active = true AND (d.start_date IS NULL OR d.start_date <= :now) AND (" + PG_DOCUMENT + " @@ plainto_tsquery('english', :keyword) " +
+            "OR :keyword <% d.title_en OR d.title_zh ILIKE CONCAT('%', :keyword, '%'))";
     
-    @Query("SELECT COUNT(d) FROM Deal d WHERE d.isActive = true AND d.expiresAt > :now")
-    long countActiveDeals(@Param("now") LocalDateTime now);
+    String PG_RANKED = "SELECT d.id AS id, CAST(ts_rank(" + PG_DOCUMENT + ", plainto_tsquery('english', :keyword)) + " +
+            "word_similarity(:keyword, COALESCE(d.title_en, '')) + similarity(COALESCE(d.title_zh, ''), :keyword) " +
+            "AS double precision) AS score FROM deals d WHERE " + PG_MATCH;
+    
+    @Query("SELECT d FROM Deal d WHERE d.isActive = true ORDER BY d.createdAt DESC")
+    Page<Deal> findActiveDeals(Pageable pageable);
+    
+    @Query(value = DEAL_CARD_SELECT + "WHERE d.isActive = true AND " + STARTED + " AND " + KEYWORD_MATCH +
+                   " ORDER BY d.createdAt DESC, d.id DESC",
+           countQuery = "SELECT COUNT(d) FROM Deal d WHERE d.isActive = true AND " + STARTED + " AND " + KEYWORD_MATCH)
+    Page<DealCard> searchActiveDeals(@Param("keyword") String keyword, @Param("now") LocalDateTime now,
+                                     Pageable pageable);
+    
+    @Query(DEAL_CARD_SELECT + "WHERE d.isActive = true AND " + STARTED + " AND " + KEYWORD_MATCH +
+           " ORDER BY d.createdAt DESC, d.id DESC")
+    Slice<DealCard> searchActiveDealsSlice(@Param("keyword") String keyword, @Param("now") LocalDateTime now,
+                                           Pageable pageable);
+    
+    @Query(DEAL_CARD_SELECT + "WHERE d.isActive = true AND " + STARTED + " AND " + KEYWORD_MATCH +
+           " ORDER BY d.createdAt DESC, d.id DESC")
+    List<DealCard> searchActiveDealsFirst(@Param("keyword") String keyword, @Param("now") LocalDateTime now,
+                                          Pageable pageable);
+    
+    @Query(DEAL_CARD_SELECT + "WHERE d.isActive = true AND " + STARTED + " AND " + KEYWORD_MATCH +
+           " AND (d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id)) " +
+           "ORDER BY d.createdAt DESC, d.id DESC")
+    List<DealCard> searchActiveDealsAfter(@Param("keyword") String keyword, @Param("now") LocalDateTime now,
+                                          @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                          Pageable pageable);
+    
+    // 返回 [id, score]
+    @Query(value = "SELECT r.id, r.score FROM (" + PG_RANKED + ") r ORDER BY r.score DESC, r.id DESC " +
+                   "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Object[]> searchRankedPostgres(@Param("keyword") String keyword, @Param("now") LocalDateTime now,
+                                        @Param("limit") int limit,
+                                        @Param("offset") long offset);
+    
+    @Query(value = "SELECT r.id, r.score FROM (" + PG_RANKED + ") r " +
+                   "WHERE r.score < :score OR (r.score = :score AND r.id < :id) " +
+                   "ORDER BY r.score DESC, r.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchRankedPostgresAfter(@Param("keyword") String keyword, @Param("now") LocalDateTime now,
+                                             @Param("score") double score,
+                                             @Param("id") Long id, @Param("limit") int limit);
+    
+    @Query(value = "SELECT COUNT(*) FROM deals d WHERE " + PG_MATCH, nativeQuery = true)
+    long countMatchesPostgres(@Param("keyword") String keyword, @Param("now") LocalDateTime now);
+    
+    @Query(DEAL_CARD_SELECT + "WHERE d.id IN :ids")
+    List<DealCard> findCardsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // 佣金比例表：返回 [id, storeId, commissionRate]，含已下线优惠
+    @Query("SELECT d.id, s.id, d.commissionRate FROM Deal d LEFT JOIN d.store s")
+    List<Object[]> findCommissionRates();
+    
+    @Query("SELECT d.id, s.id, d.commissionRate FROM Deal d LEFT JOIN d.store s WHERE d.id = :id")
+    List<Object[]> findCommissionRateById(@Param("id") Long id);
+    
+    @Query("SELECT d.affiliateUrl FROM Deal d WHERE d.id = :id")
+    Optional<String> findAffiliateUrlById(@Param("id") Long id);
+    
+    @Query("SELECT d FROM Deal d WHERE d.category.id = :categoryId AND d.isActive = true ORDER BY d.createdAt DESC")
+    Page<Deal> findActiveDealsByCategory(@Param("categoryId") Long categoryId, Pageable pageable);
+    
+    @Query("SELECT d FROM Deal d WHERE d.store.id = :storeId AND d.isActive = true ORDER BY d.createdAt DESC")
+    Page<Deal> findActiveDealsByStore(@Param("storeId") Long storeId, Pageable pageable);
+    
+    @Query("SELECT d FROM Deal d WHERE d.isActive = true ORDER BY d.clickCount DESC")
+    List<Deal> findPopularDeals(Pageable pageable);
+    
+    @Query("SELECT COUNT(d) FROM Deal d WHERE d.isActive = true")
+    long countActiveDeals();
+    
+    @Query("SELECT d FROM Deal d LEFT JOIN FETCH d.store LEFT JOIN FETCH d.category " +
+           "WHERE d.isActive = true")
+    List<Deal> findActiveDealsForSnapshot();
+    
+    // 生命周期调度：返回 [id, startDate, endDate]，供时间轮排期
+    @Query("SELECT d.id, d.startDate, d.endDate FROM Deal d WHERE d.isActive = true AND " +
+           "(d.startDate > :now OR d.endDate IS NOT NULL)")
+    List<Object[]> findLifecycleSchedule(@Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Deal d SET d.isActive = false WHERE d.id IN :ids AND d.endDate <= :now")
+    int deactivateExpired(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Deal d SET d.isActive = false WHERE d.isActive = true AND d.endDate <= :now")
+    int deactivateAllExpired(@Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -3,8 +3,10 @@ package com.riverad.repository;
 import com.riverad.model.Store;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,4 +20,11 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
     
     @Query("SELECT COUNT(s) FROM Store s WHERE s.isActive = true")
     long countActiveStores();
+    
+    // 佣金比例表：返回 [id, commissionRate]
+    @Query("SELECT s.id, s.commissionRate FROM Store s")
+    List<Object[]> findCommissionRates();
+    
+    @Query("SELECT s.commissionRate FROM Store s WHERE s.id = :id")
+    Optional<BigDecimal> findCommissionRateById(@Param("id") Long id);
 }
\ No newline at end of file
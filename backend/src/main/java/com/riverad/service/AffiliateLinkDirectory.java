@@ -0,0 +1,69 @@
+package com.riverad.service;
+
+import com.riverad.event.DealChangedEvent;
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Deal;
+import com.riverad.repository.DealRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 跳转链接目录：活跃优惠的 dealId → affiliateUrl 随快照替换整体更新，跳转接口只查内存。
+ * 已下线或不存在的优惠首次访问时查一次库，结果（包括不存在）缓存到有界表中，优惠变更时失效。
+ */
+@Service
+public class AffiliateLinkDirectory {
+
+    private static final String MISSING = "";
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Value("${app.affiliate.redirect.max-inactive-entries:10000}")
+    private int maxInactiveEntries;
+
+    private volatile Map<Long, String> activeUrls = Map.of();
+    private final Map<Long, String> inactiveUrls = new ConcurrentHashMap<>();
+
+    /**
+     * 返回优惠的联盟跳转地址，优惠不存在或未配置地址时为空。
+     */
+    public Optional<String> resolve(Long dealId) {
+        String url = activeUrls.get(dealId);
+        if (url == null) {
+            url = inactiveUrls.get(dealId);
+        }
+        if (url == null) {
+            url = dealRepository.findAffiliateUrlById(dealId).orElse(MISSING);
+            if (inactiveUrls.size() >= maxInactiveEntries) {
+                inactiveUrls.clear();
+            }
+            inactiveUrls.put(dealId, url);
+        }
+        return url.isBlank() ? Optional.empty() : Optional.of(url);
+    }
+
+    @EventListener
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        Map<Long, String> urls = new HashMap<>(event.getSnapshot().size() * 2);
+        for (Deal deal : event.getSnapshot().deals()) {
+            if (deal.getAffiliateUrl() != null) {
+                urls.put(deal.getId(), deal.getAffiliateUrl());
+            }
+        }
+        activeUrls = urls;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDealChanged(DealChangedEvent event) {
+        inactiveUrls.remove(event.getDealId());
+    }
+}
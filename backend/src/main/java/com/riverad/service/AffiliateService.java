@@ -1,17 +1,20 @@
 package com.riverad.service;
 
+import com.riverad.dto.ClickEvent;
 import com.riverad.model.AffiliateClick;
-import com.riverad.model.Deal;
-import com.riverad.model.User;
 import com.riverad.repository.AffiliateClickRepository;
 import com.riverad.repository.DealRepository;
+import com.riverad.utils.ClickIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,51 +22,96 @@ import java.util.UUID;
 @Transactional
 public class AffiliateService {
 
+    private static final int RECALCULATE_CHUNK = 500;
+
     @Autowired
     private AffiliateClickRepository affiliateClickRepository;
     
     @Autowired
     private DealRepository dealRepository;
     
-    @Value("${app.affiliate.default-commission-rate}")
-    private Double defaultCommissionRate;
-
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+    
+    @Autowired
+    private ClickIngestionService clickIngestionService;
+    
+    @Autowired
+    private ClickFraudFilter clickFraudFilter;
+    
+    @Autowired
+    private DealCounterService dealCounterService;
+    
+    @Autowired
+    private PopularDealsTracker popularDealsTracker;
+    
+    @Autowired
+    private TrendingScoreService trendingScoreService;
+    
+    @Autowired
+    private CommissionRateResolver commissionRateResolver;
+    
+    /**
+     * 校验优惠后生成点击ID并交给写入队列，请求线程不等待落库；活跃优惠直接从快照判断，不查库。
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public String trackClick(Long dealId, Long userId, String ipAddress, String userAgent, String referrer) {
-        Optional<Deal> dealOpt = dealRepository.findById(dealId);
-        if (dealOpt.isEmpty()) {
+        if (dealSnapshotService.current().get(dealId).isEmpty() && !dealRepository.existsById(dealId)) {
             throw new IllegalArgumentException("优惠信息不存在: " + dealId);
         }
         
-        Deal deal = dealOpt.get();
-        String clickId = UUID.randomUUID().toString();
-        
-        AffiliateClick click = new AffiliateClick(clickId, deal, ipAddress);
-        click.setUserAgent(userAgent);
-        click.setReferrer(referrer);
-        
-        if (userId != null) {
-            User user = new User();
-            user.setId(userId);
-            click.setUser(user);
+        return enqueue(dealId, userId, ipAddress, userAgent, referrer, null);
+    }
+
+    /**
+     * 跳转接口使用：优惠已由 {@link AffiliateLinkDirectory} 确认，只生成点击ID并入队，全程不访问数据库，
+     * 队列满时也不等待。linkId 为跳转链接中的点击ID，用于识别重放。
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String trackRedirect(Long dealId, Long userId, String ipAddress, String userAgent, String referrer,
+                                String linkId) {
+        return enqueue(dealId, userId, ipAddress, userAgent, referrer, linkId);
+    }
+
+    /**
+     * 反作弊判定为丢弃的点击不入库也不计数，但照常返回点击ID，不向刷量方暴露判定结果；
+     * 标记为可疑的点击入库，但不计入点击数和热度。
+     */
+    private String enqueue(Long dealId, Long userId, String ipAddress, String userAgent, String referrer,
+                           String linkId) {
+        UUID clickId = ClickIdGenerator.next();
+        ClickFraudFilter.Verdict verdict = clickFraudFilter.inspect(ipAddress, referrer, linkId);
+        if (verdict == ClickFraudFilter.Verdict.DROP) {
+            return ClickIdGenerator.encode(clickId);
         }
         
-        affiliateClickRepository.save(click);
+        boolean suspicious = verdict == ClickFraudFilter.Verdict.FLAG;
+        ClickEvent click = new ClickEvent(clickId, dealId, userId, ipAddress, userAgent, referrer, LocalDateTime.now(),
+                suspicious);
+        if (linkId != null) {
+            clickIngestionService.submitNonBlocking(click);
+        } else {
+            clickIngestionService.submit(click);
+        }
         
-        deal.setClickCount(deal.getClickCount() + 1);
-        dealRepository.save(deal);
+        if (!suspicious) {
+            dealCounterService.recordClick(dealId);
+            popularDealsTracker.recordClick(dealId);
+            trendingScoreService.recordClick(dealId);
+        }
         
-        return clickId;
+        return ClickIdGenerator.encode(clickId);
     }
 
     public String generateAffiliateUrl(Long dealId, Long userId) {
-        String clickId = UUID.randomUUID().toString();
+        String clickId = ClickIdGenerator.nextEncoded();
         
         return String.format("/api/affiliate/redirect/%s?deal=%d&user=%d", 
                             clickId, dealId, userId != null ? userId : 0);
     }
 
     public void recordConversion(String clickId, Double orderAmount) {
-        Optional<AffiliateClick> clickOpt = affiliateClickRepository.findById(clickId);
+        Optional<AffiliateClick> clickOpt = affiliateClickRepository.findById(ClickIdGenerator.decode(clickId));
         if (clickOpt.isEmpty()) {
             throw new IllegalArgumentException("点击记录不存在: " + clickId);
         }
@@ -75,16 +123,41 @@ public class AffiliateService {
         
         click.setConverted(true);
         click.setConversionTimestamp(LocalDateTime.now());
+        click.setOrderAmount(orderAmount);
+        // 代理上取ID不会加载优惠，佣金比例从内存表解析
+        click.setCommissionAmount(orderAmount * commissionRateResolver.resolve(click.getDeal().getId()));
         
-        Double commissionRate = click.getDeal().getCommissionRate();
-        if (commissionRate == null) {
-            commissionRate = defaultCommissionRate;
+        affiliateClickRepository.save(click);
+    }
+
+    /**
+     * 按当前佣金比例重算最近 days 天内的转化佣金，storeId 不为空时只重算该商店的优惠。
+     * 优惠按比例分组，每组一条批量 UPDATE；未保存订单金额的历史转化无法重算，保持不变。
+     */
+    public int recalculateCommissions(int days, Long storeId) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("天数必须大于0");
         }
+        LocalDateTime startTime = LocalDateTime.now().minusDays(days);
         
-        Double commissionAmount = orderAmount * commissionRate;
-        click.setCommissionAmount(commissionAmount);
+        Map<Double, List<Long>> dealsByRate = new HashMap<>();
+        for (Long dealId : affiliateClickRepository.findConvertedDealIdsAfter(startTime)) {
+            if (storeId == null || storeId.equals(commissionRateResolver.storeOf(dealId))) {
+                dealsByRate.computeIfAbsent(commissionRateResolver.resolve(dealId), rate -> new ArrayList<>())
+                        .add(dealId);
+            }
+        }
         
-        affiliateClickRepository.save(click);
+        int updated = 0;
+        for (Map.Entry<Double, List<Long>> entry : dealsByRate.entrySet()) {
+            List<Long> dealIds = entry.getValue();
+            for (int from = 0; from < dealIds.size(); from += RECALCULATE_CHUNK) {
+                updated += affiliateClickRepository.recalculateCommissions(entry.getKey(),
+                        dealIds.subList(from, Math.min(from + RECALCULATE_CHUNK, dealIds.size())),
+                        startTime);
+            }
+        }
+        return updated;
     }
 
     @Transactional(readOnly = true)
@@ -93,12 +166,19 @@ public class AffiliateService {
         return affiliateClickRepository.countClicksByDealAfter(dealId, startTime);
     }
 
+    /**
+     * 最近 days 天内的转化数。只统计原始点击表：点击超过保留期（app.affiliate.partitioning.retention）后
+     * 原始行已汇总到 affiliate_click_rollups 并删除，汇总按点击日期而非转化时间，不计入这里的统计。
+     */
     @Transactional(readOnly = true)
     public long getTotalConversions(int days) {
         LocalDateTime startTime = LocalDateTime.now().minusDays(days);
         return affiliateClickRepository.countConversionsAfter(startTime);
     }
 
+    /**
+     * 最近 days 天内的佣金合计，与 {@link #getTotalConversions} 一样不含已超过保留期的点击。
+     */
     @Transactional(readOnly = true)
     public Double getTotalCommissions(int days) {
         LocalDateTime startTime = LocalDateTime.now().minusDays(days);
@@ -106,13 +186,6 @@ public class AffiliateService {
         return total != null ? total : 0.0;
     }
 
-    @Transactional(readOnly = true)
-    public boolean isRecentClick(String ipAddress, int minutesThreshold) {
-        LocalDateTime recentTime = LocalDateTime.now().minusMinutes(minutesThreshold);
-        List<AffiliateClick> recentClicks = affiliateClickRepository.findRecentClicksByIp(ipAddress, recentTime);
-        return !recentClicks.isEmpty();
-    }
-
     @Transactional(readOnly = true)
     public List<AffiliateClick> getUserClickHistory(Long userId) {
         return affiliateClickRepository.findClicksByUserId(userId);
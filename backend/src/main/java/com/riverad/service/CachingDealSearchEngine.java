@@ -0,0 +1,59 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 搜索结果缓存包装，位于纠错包装之外，缓存的是最终返回给客户端的结果。
+ */
+public class CachingDealSearchEngine implements DealSearchEngine {
+
+    private final DealSearchEngine delegate;
+    private final SearchResultCache cache;
+    private final FuzzyTermIndex fuzzyTermIndex;
+
+    public CachingDealSearchEngine(DealSearchEngine delegate, SearchResultCache cache,
+                                   FuzzyTermIndex fuzzyTermIndex) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.fuzzyTermIndex = fuzzyTermIndex;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Page<DealCard> search(String keyword, Pageable pageable) {
+        String key = "page|" + pageable.getPageNumber() + "|" + pageable.getPageSize() + "|"
+                + SearchResultCache.normalize(keyword);
+        return cache.get(key, () -> keywords(keyword), () -> delegate.search(keyword, pageable));
+    }
+
+    @Override
+    public Slice<DealCard> searchSlice(String keyword, Pageable pageable) {
+        String key = "slice|" + pageable.getPageNumber() + "|" + pageable.getPageSize() + "|"
+                + SearchResultCache.normalize(keyword);
+        return cache.get(key, () -> keywords(keyword), () -> delegate.searchSlice(keyword, pageable));
+    }
+
+    @Override
+    public CursorPage<DealCard> searchAfter(String keyword, String cursor, int size) {
+        String key = "cursor|" + cursor + "|" + size + "|" + SearchResultCache.normalize(keyword);
+        return cache.get(key, () -> keywords(keyword), () -> delegate.searchAfter(keyword, cursor, size));
+    }
+
+    /**
+     * 结果可能来自纠错后的关键词，失效时两者都要考虑。
+     */
+    private List<String> keywords(String keyword) {
+        return Arrays.asList(keyword, fuzzyTermIndex.correct(keyword));
+    }
+}
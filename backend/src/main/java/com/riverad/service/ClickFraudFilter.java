@@ -0,0 +1,159 @@
+package com.riverad.service;
+
+import com.riverad.utils.BloomFilter;
+import com.riverad.utils.CountMinSketch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 点击反作弊评分：Count-Min 草图估计窗口内每个 IP、来源页的点击量，超过阈值视为刷量；
+ * 布隆过滤器记录跳转链接ID，重复出现视为重放。草图和过滤器按窗口轮换，保留当前和上一窗口，
+ * 上一窗口的计数按剩余时间比例折算，内存大小固定，与请求来源数量无关。
+ */
+@Service
+public class ClickFraudFilter {
+
+    private static final String METRIC = "affiliate.clicks.suspicious";
+
+    public enum Verdict {
+        CLEAN, FLAG, DROP
+    }
+
+    private static final class Window {
+        final CountMinSketch ips;
+        final CountMinSketch referrers;
+        final BloomFilter links;
+        final long startedAt;
+
+        Window(int width, int depth, int expectedLinks, double falsePositiveRate, long startedAt) {
+            this.ips = new CountMinSketch(width, depth);
+            this.referrers = new CountMinSketch(width, depth);
+            this.links = new BloomFilter(expectedLinks, falsePositiveRate);
+            this.startedAt = startedAt;
+        }
+    }
+
+    @Value("${app.affiliate.fraud.enabled:true}")
+    private boolean enabled;
+
+    // flag：照常入库但标记可疑，不计入热度；drop：直接丢弃
+    @Value("${app.affiliate.fraud.action:flag}")
+    private String action;
+
+    @Value("${app.affiliate.fraud.window-ms:600000}")
+    private long windowMs;
+
+    @Value("${app.affiliate.fraud.ip-threshold:200}")
+    private int ipThreshold;
+
+    @Value("${app.affiliate.fraud.referrer-threshold:5000}")
+    private int referrerThreshold;
+
+    // 本站等可信来源不参与来源统计
+    @Value("${app.affiliate.fraud.trusted-referrers:localhost}")
+    private Set<String> trustedReferrers;
+
+    @Value("${app.affiliate.fraud.sketch-width:65536}")
+    private int sketchWidth;
+
+    @Value("${app.affiliate.fraud.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${app.affiliate.fraud.replay-capacity:1000000}")
+    private int replayCapacity;
+
+    @Value("${app.affiliate.fraud.replay-false-positive-rate:0.001}")
+    private double replayFalsePositiveRate;
+
+    private final Counter heavyIps;
+    private final Counter heavyReferrers;
+    private final Counter replays;
+    private Verdict suspiciousVerdict;
+    private volatile Window current;
+    private volatile Window previous;
+
+    public ClickFraudFilter(MeterRegistry meterRegistry) {
+        this.heavyIps = Counter.builder(METRIC).tag("reason", "ip").register(meterRegistry);
+        this.heavyReferrers = Counter.builder(METRIC).tag("reason", "referrer").register(meterRegistry);
+        this.replays = Counter.builder(METRIC).tag("reason", "replay").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        suspiciousVerdict = "drop".equalsIgnoreCase(action.trim()) ? Verdict.DROP : Verdict.FLAG;
+        current = newWindow();
+    }
+
+    /**
+     * 记录一次点击并给出判定。linkId 为跳转链接中的点击ID，没有时传 null。
+     */
+    public Verdict inspect(String ipAddress, String referrer, String linkId) {
+        if (!enabled) {
+            return Verdict.CLEAN;
+        }
+        Window window = current;
+        Window last = previous;
+        double elapsed = (double) (System.currentTimeMillis() - window.startedAt) / windowMs;
+        double carried = last == null ? 0 : Math.max(0, 1 - elapsed);
+        boolean suspicious = false;
+
+        if (linkId != null && !linkId.isEmpty()) {
+            boolean seen = !window.links.put(linkId) || (last != null && last.links.mightContain(linkId));
+            if (seen) {
+                replays.increment();
+                suspicious = true;
+            }
+        }
+        if (ipAddress != null && !ipAddress.isEmpty()) {
+            int count = window.ips.add(ipAddress);
+            if (count + (last != null ? last.ips.estimate(ipAddress) * carried : 0) > ipThreshold) {
+                heavyIps.increment();
+                suspicious = true;
+            }
+        }
+        String source = referrerHost(referrer);
+        if (source != null && !trustedReferrers.contains(source)) {
+            int count = window.referrers.add(source);
+            if (count + (last != null ? last.referrers.estimate(source) * carried : 0) > referrerThreshold) {
+                heavyReferrers.increment();
+                suspicious = true;
+            }
+        }
+        return suspicious ? suspiciousVerdict : Verdict.CLEAN;
+    }
+
+    @Scheduled(initialDelayString = "${app.affiliate.fraud.window-ms:600000}",
+               fixedRateString = "${app.affiliate.fraud.window-ms:600000}")
+    public void rotate() {
+        Window next = newWindow();
+        previous = current;
+        current = next;
+    }
+
+    /**
+     * 来源页按主机名统计，避免带不同查询参数的同一来源被分散计数。
+     */
+    private static String referrerHost(String referrer) {
+        if (referrer == null || referrer.isBlank()) {
+            return null;
+        }
+        int start = referrer.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < referrer.length() && "/?#".indexOf(referrer.charAt(end)) < 0) {
+            end++;
+        }
+        return referrer.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    private Window newWindow() {
+        return new Window(sketchWidth, sketchDepth, replayCapacity, replayFalsePositiveRate, System.currentTimeMillis());
+    }
+}
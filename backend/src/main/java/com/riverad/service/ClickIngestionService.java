@@ -0,0 +1,404 @@
+package com.riverad.service;
+
+import com.riverad.dto.ClickEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 点击异步写入：请求线程把点击放进有界环形队列后立即返回，少量写线程批量取出，
+ * 用多行 INSERT 写入 affiliate_clicks，一批只占用一次连接和一个事务。
+ * 优惠的 click_count 由 {@link DealCounterService} 单独累计写回。队列满时按 overflow-policy 处理；关闭时停止接收并在超时内排空队列。
+ */
+@Service
+public class ClickIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickIngestionService.class);
+
+    private static final String METRIC = "affiliate.clicks.ingest";
+    private static final String INSERT_PREFIX = "INSERT INTO affiliate_clicks (click_id, deal_id, user_id, ip_address, " +
+            "user_agent, referrer, click_timestamp, suspicious, converted) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, false)";
+    private static final int MAX_TEXT = 500;
+    private static final long INITIAL_BACKOFF_MS = 100;
+    private static final long DROP_LOG_INTERVAL_MS = 10_000;
+
+    /**
+     * 队列满时的处理方式：BLOCK 在超时内等待空位，仍满则丢弃；DROP_NEWEST 丢弃新点击；
+     * DROP_OLDEST 挤掉最早的点击；CALLER_RUNS 由请求线程同步写入。
+     */
+    public enum OverflowPolicy {
+        BLOCK, DROP_NEWEST, DROP_OLDEST, CALLER_RUNS
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ClickJournal clickJournal;
+
+    @Value("${app.affiliate.ingest.capacity:65536}")
+    private int capacity;
+
+    @Value("${app.affiliate.ingest.writers:2}")
+    private int writers;
+
+    @Value("${app.affiliate.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.affiliate.ingest.rows-per-statement:100}")
+    private int rowsPerStatement;
+
+    @Value("${app.affiliate.ingest.overflow-policy:block}")
+    private String overflowPolicyName;
+
+    @Value("${app.affiliate.ingest.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.affiliate.ingest.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    // 暂时性写库失败时整批重试的最长间隔
+    @Value("${app.affiliate.ingest.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    // 非暂时性写库失败（如 SQL 与表结构不符）的最多尝试次数，用尽后整批计为失败，写线程继续处理后续点击
+    @Value("${app.affiliate.ingest.max-attempts:3}")
+    private int maxAttempts;
+
+    // 与 Hibernate 写 LocalDateTime 时使用的时区保持一致，否则 JPA 统计查询会错位
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    private final Counter accepted;
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+    private final Map<Integer, String> insertSql = new ConcurrentHashMap<>();
+    private final LongAdder droppedSinceLog = new LongAdder();
+    private final AtomicLong lastDropLog = new AtomicLong();
+    private BlockingQueue<ClickEvent> queue;
+    private OverflowPolicy overflowPolicy;
+    private ExecutorService executor;
+    private TransactionTemplate transactionTemplate;
+    private TimeZone timeZone;
+    private volatile boolean running;
+
+    public ClickIngestionService(MeterRegistry meterRegistry) {
+        this.accepted = Counter.builder(METRIC).tag("result", "accepted").register(meterRegistry);
+        this.dropped = Counter.builder(METRIC).tag("result", "dropped").register(meterRegistry);
+        this.written = Counter.builder(METRIC).tag("result", "written").register(meterRegistry);
+        this.failed = Counter.builder(METRIC).tag("result", "failed").register(meterRegistry);
+        Gauge.builder(METRIC + ".queue", this, ClickIngestionService::pending).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        overflowPolicy = OverflowPolicy.valueOf(overflowPolicyName.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        queue = new ArrayBlockingQueue<>(capacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        timeZone = jdbcTimeZone.isBlank() ? null : TimeZone.getTimeZone(jdbcTimeZone);
+        running = true;
+        executor = Executors.newFixedThreadPool(writers, runnable -> {
+            Thread thread = new Thread(runnable, "click-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writers; i++) {
+            executor.execute(this::drainLoop);
+        }
+    }
+
+    /**
+     * 提交一次点击。返回 false 表示按溢出策略被丢弃。
+     */
+    public boolean submit(ClickEvent click) {
+        return submit(click, overflowPolicy);
+    }
+
+    /**
+     * 延迟敏感路径（如跳转）使用：队列满时既不等待也不同步写库，BLOCK 和 CALLER_RUNS 按 DROP_NEWEST 处理。
+     */
+    public boolean submitNonBlocking(ClickEvent click) {
+        return submit(click, overflowPolicy == OverflowPolicy.DROP_OLDEST ? OverflowPolicy.DROP_OLDEST
+                : OverflowPolicy.DROP_NEWEST);
+    }
+
+    private boolean submit(ClickEvent click, OverflowPolicy policy) {
+        // 启用本地日志时先落盘，由回放线程写库；日志积压过多或写盘失败时退回内存队列
+        if (clickJournal.isEnabled() && clickJournal.append(click)) {
+            accepted.increment();
+            return true;
+        }
+        if (!running) {
+            // 关闭过程中到达的点击直接同步写入，不再进入队列
+            return writeOrDrop(click);
+        }
+        boolean queued = switch (policy) {
+            case BLOCK -> offer(click, offerTimeoutMs);
+            case DROP_NEWEST -> queue.offer(click);
+            case DROP_OLDEST -> offerEvictingOldest(click);
+            case CALLER_RUNS -> {
+                if (queue.offer(click)) {
+                    yield true;
+                }
+                yield writeOrDrop(click);
+            }
+        };
+        if (queued) {
+            accepted.increment();
+        } else {
+            recordDropped();
+        }
+        return queued;
+    }
+
+    public int pending() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+                log.warn("Click ingestion did not drain in {} ms, {} clicks lost", shutdownTimeoutMs, queue.size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean offer(ClickEvent click, long timeoutMs) {
+        try {
+            return queue.offer(click, timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean offerEvictingOldest(ClickEvent click) {
+        while (!queue.offer(click)) {
+            ClickEvent evicted = queue.poll();
+            if (evicted != null) {
+                recordDropped();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 丢弃只计数，日志按间隔汇总输出，避免队列满时每个请求都打一条日志。
+     */
+    private void recordDropped() {
+        dropped.increment();
+        droppedSinceLog.increment();
+        long now = System.currentTimeMillis();
+        long last = lastDropLog.get();
+        if (now - last >= DROP_LOG_INTERVAL_MS && lastDropLog.compareAndSet(last, now)) {
+            log.warn("Click ingestion queue full, dropped {} clicks since the last report",
+                    droppedSinceLog.sumThenReset());
+        }
+    }
+
+    /**
+     * 请求线程同步写入单条点击（CALLER_RUNS 及关闭过程中），数据库不可用时按丢弃处理，不把异常抛给请求。
+     */
+    private boolean writeOrDrop(ClickEvent click) {
+        try {
+            write(List.of(click), false);
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            recordDropped();
+            return false;
+        }
+    }
+
+    private void drainLoop() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ClickEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    failed.increment(batch.size());
+                    log.error("Click writer interrupted, {} clicks not stored", batch.size());
+                }
+                return;
+            } catch (RuntimeException e) {
+                failed.increment(batch.size());
+                log.error("Click writer failed on a batch of {} clicks", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 数据库不可用或连接超时等暂时性错误时保留整批，按指数退避一直重试，期间新点击在队列中积压并按溢出策略处理；
+     * 其他错误重试不会好转，最多尝试 max-attempts 次后抛出，由写线程把整批计为失败。
+     * 重试时先排除已入库的点击，避免上次提交成功但确认丢失时重复写入。
+     */
+    private void writeWithRetry(List<ClickEvent> batch) throws InterruptedException {
+        long backoff = INITIAL_BACKOFF_MS;
+        int attempts = 0;
+        while (true) {
+            try {
+                write(batch, attempts > 0);
+                return;
+            } catch (DataAccessException | TransactionException e) {
+                attempts++;
+                if (!isTransient(e) && attempts >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("Failed to store {} clicks, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    // 事务管理器取不到连接时抛出 CannotCreateTransactionException，与取连接失败同样视为暂时性
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof CannotGetJdbcConnectionException || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * 日志回放使用：跳过已入库的点击，保证重放幂等；只有数据本身有误（如用户ID不存在）的行被丢弃，
+     * 数据库不可用等其他异常直接抛出，由回放方保留进度稍后重试。
+     */
+    public void writeReplayed(List<ClickEvent> clicks) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(withoutExisting(clicks)));
+            written.increment(clicks.size());
+        } catch (DataIntegrityViolationException e) {
+            if (clicks.size() == 1) {
+                failed.increment();
+                log.warn("Dropping journaled click {} for deal {}: {}", clicks.get(0).clickId(), clicks.get(0).dealId(),
+                        e.getMessage());
+                return;
+            }
+            for (ClickEvent click : clicks) {
+                writeReplayed(List.of(click));
+            }
+        }
+    }
+
+    /**
+     * 整批在一个事务内写入；只有数据本身有误（如某行用户ID不存在）导致整批失败时才逐条重试，丢弃出错的行。
+     * 其他异常（数据库不可用、连接超时等）原样抛出，由调用方决定重试或丢弃。
+     */
+    private void write(List<ClickEvent> clicks, boolean skipExisting) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(skipExisting ? withoutExisting(clicks) : clicks));
+            written.increment(clicks.size());
+        } catch (DataIntegrityViolationException e) {
+            if (clicks.size() == 1) {
+                failed.increment();
+                log.warn("Failed to store click {} for deal {}: {}", clicks.get(0).clickId(), clicks.get(0).dealId(),
+                        e.getMessage());
+                return;
+            }
+            log.warn("Batch insert of {} clicks failed, retrying row by row: {}", clicks.size(), e.getMessage());
+            for (ClickEvent click : clicks) {
+                write(List.of(click), skipExisting);
+            }
+        }
+    }
+
+    private void persist(List<ClickEvent> clicks) {
+        if (clicks.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < clicks.size(); from += rowsPerStatement) {
+            List<ClickEvent> rows = clicks.subList(from, Math.min(from + rowsPerStatement, clicks.size()));
+            jdbcTemplate.update(insertSql(rows.size()), statement -> {
+                int index = 1;
+                for (ClickEvent click : rows) {
+                    index = bind(statement, index, click);
+                }
+            });
+        }
+    }
+
+    private List<ClickEvent> withoutExisting(List<ClickEvent> clicks) {
+        String placeholders = String.join(", ", Collections.nCopies(clicks.size(), "?"));
+        Set<UUID> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT click_id FROM affiliate_clicks WHERE click_id IN (" + placeholders + ")", UUID.class,
+                clicks.stream().map(ClickEvent::clickId).toArray()));
+        if (existing.isEmpty()) {
+            return clicks;
+        }
+        return clicks.stream().filter(click -> !existing.contains(click.clickId())).toList();
+    }
+
+    private String insertSql(int rows) {
+        return insertSql.computeIfAbsent(rows, n -> INSERT_PREFIX + String.join(", ", Collections.nCopies(n, ROW)));
+    }
+
+    private int bind(PreparedStatement statement, int index, ClickEvent click) throws SQLException {
+        statement.setObject(index++, click.clickId());
+        statement.setLong(index++, click.dealId());
+        if (click.userId() != null) {
+            statement.setLong(index++, click.userId());
+        } else {
+            statement.setNull(index++, Types.BIGINT);
+        }
+        statement.setString(index++, click.ipAddress());
+        statement.setString(index++, truncate(click.userAgent()));
+        statement.setString(index++, truncate(click.referrer()));
+        Timestamp timestamp = Timestamp.valueOf(click.clickTimestamp());
+        if (timeZone != null) {
+            statement.setTimestamp(index++, timestamp, Calendar.getInstance(timeZone));
+        } else {
+            statement.setTimestamp(index++, timestamp);
+        }
+        statement.setBoolean(index++, click.suspicious());
+        return index;
+    }
+
+    private static String truncate(String text) {
+        return text != null && text.length() > MAX_TEXT ? text.substring(0, MAX_TEXT) : text;
+    }
+}
@@ -0,0 +1,326 @@
+package com.riverad.service;
+
+import com.riverad.dto.ClickEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 点击的本地预写日志。目录下是固定大小的内存映射段文件，每条记录为 [长度][CRC32C][内容]，
+ * 长度最后写入，长度为0即段内结束；写满后切换到下一段。回放进度保存在 checkpoint 文件中（原子替换），
+ * 进度之前的整段文件随之删除。启动时按 CRC 扫描最后一段找回写入位置，未确认的记录会被重新回放。
+ */
+@Service
+public class ClickJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickJournal.class);
+
+    private static final int HEADER = 8;
+    private static final String CHECKPOINT = "checkpoint";
+
+    public record Position(long segment, int offset) {}
+
+    @Value("${app.affiliate.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.affiliate.journal.dir:./data/click-journal}")
+    private String directory;
+
+    @Value("${app.affiliate.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    // 积压的段数上限，超出后新点击退回内存队列，避免数据库长时间不可用时写满磁盘
+    @Value("${app.affiliate.journal.max-segments:64}")
+    private int maxSegments;
+
+    private Path dir;
+    private MappedByteBuffer writeBuffer;
+    private long writeSegment;
+    private volatile Position committed;
+    private volatile Position checkpoint;
+    private MappedByteBuffer readBuffer;
+    private long readSegment = -1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        long[] segments = segments();
+        writeSegment = segments.length == 0 ? 1 : segments[segments.length - 1];
+        writeBuffer = map(writeSegment, FileChannel.MapMode.READ_WRITE);
+        int end = recover(writeBuffer);
+        writeBuffer.position(end);
+        committed = new Position(writeSegment, end);
+        checkpoint = readCheckpoint(segments.length == 0 ? writeSegment : segments[0]);
+        log.info("Click journal opened at {}, replay from segment {} offset {}, write at segment {} offset {}",
+                dir, checkpoint.segment(), checkpoint.offset(), writeSegment, end);
+    }
+
+    /**
+     * 追加一条点击，返回 false 表示积压过多或写盘失败，调用方应改走其他路径。
+     */
+    public boolean append(ClickEvent click) {
+        byte[] payload = encode(click);
+        if (payload.length + HEADER > segmentBytes) {
+            throw new IllegalArgumentException("点击记录超过日志段大小");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        synchronized (this) {
+            try {
+                if (writeBuffer.remaining() < HEADER + payload.length) {
+                    if (writeSegment + 1 - checkpoint.segment() >= maxSegments) {
+                        return false;
+                    }
+                    rotate();
+                }
+                int offset = writeBuffer.position();
+                writeBuffer.putInt(offset + 4, (int) crc.getValue());
+                writeBuffer.put(offset + HEADER, payload);
+                writeBuffer.putInt(offset, payload.length);
+                writeBuffer.position(offset + HEADER + payload.length);
+                committed = new Position(writeSegment, writeBuffer.position());
+                return true;
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to append click {} to journal", click.clickId(), e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 从 from 开始读取最多 max 条已写入的记录，返回读到的下一位置。只由回放线程调用。
+     */
+    public Position read(Position from, int max, List<ClickEvent> out) throws IOException {
+        Position end = committed;
+        long segment = from.segment();
+        int offset = from.offset();
+        while (out.size() < max && segment <= end.segment()) {
+            boolean last = segment == end.segment();
+            ByteBuffer buffer = readBuffer(segment);
+            int limit = buffer == null ? 0 : last ? end.offset() : buffer.capacity();
+            int length = offset + HEADER <= limit ? buffer.getInt(offset) : 0;
+            if (length <= 0 || length > limit - offset - HEADER) {
+                if (last) {
+                    break;
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                log.warn("Corrupt click journal record at segment {} offset {}, skipping rest of segment", segment, offset);
+                if (last) {
+                    break;
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+            out.add(decode(payload));
+            offset += HEADER + length;
+        }
+        return new Position(segment, offset);
+    }
+
+    public Position checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * 记录回放进度并删除进度之前的段文件。
+     */
+    public void acknowledge(Position position) throws IOException {
+        Path temp = dir.resolve(CHECKPOINT + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(12).putLong(position.segment()).putInt(position.offset());
+        Files.write(temp, buffer.array());
+        Files.move(temp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long previous = checkpoint.segment();
+        checkpoint = position;
+        for (long segment = previous; segment < position.segment(); segment++) {
+            Files.deleteIfExists(segmentPath(segment));
+        }
+    }
+
+    /**
+     * 积压的记录是否已全部回放。
+     */
+    public boolean isDrained() {
+        return !enabled || checkpoint.equals(committed);
+    }
+
+    @Scheduled(fixedDelayString = "${app.affiliate.journal.fsync-interval-ms:1000}")
+    @PreDestroy
+    public synchronized void force() {
+        if (writeBuffer != null) {
+            writeBuffer.force();
+        }
+    }
+
+    private void rotate() throws IOException {
+        writeBuffer.force();
+        writeSegment++;
+        writeBuffer = map(writeSegment, FileChannel.MapMode.READ_WRITE);
+    }
+
+    private ByteBuffer readBuffer(long segment) throws IOException {
+        if (segment != readSegment) {
+            Path path = segmentPath(segment);
+            readBuffer = Files.exists(path) ? map(segment, FileChannel.MapMode.READ_ONLY) : null;
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private MappedByteBuffer map(long segment, FileChannel.MapMode mode) throws IOException {
+        Path path = segmentPath(segment);
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(mode, 0, channel.size());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(mode, 0, segmentBytes);
+        }
+    }
+
+    /**
+     * 按 CRC 扫描出最后一条完整记录的结束位置，并把其后的残留数据清零，防止之后被误读。
+     */
+    private int recover(MappedByteBuffer buffer) {
+        int offset = 0;
+        while (offset + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > buffer.capacity() - offset - HEADER) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER + length;
+        }
+        for (int i = offset; i < buffer.capacity() && i < offset + HEADER; i++) {
+            if (buffer.get(i) != 0) {
+                byte[] zeros = new byte[buffer.capacity() - offset];
+                buffer.put(offset, zeros);
+                break;
+            }
+        }
+        return offset;
+    }
+
+    private Position readCheckpoint(long firstSegment) throws IOException {
+        Path path = dir.resolve(CHECKPOINT);
+        if (!Files.exists(path)) {
+            return new Position(firstSegment, 0);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        return new Position(buffer.getLong(), buffer.getInt());
+    }
+
+    private long[] segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            long[] segments = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("clicks-") && name.endsWith(".seg"))
+                    .mapToLong(name -> Long.parseLong(name.substring(7, name.length() - 4)))
+                    .toArray();
+            Arrays.sort(segments);
+            return segments;
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("clicks-%016d.seg", segment));
+    }
+
+    private static byte[] encode(ClickEvent click) {
+        byte[] ip = bytes(click.ipAddress());
+        byte[] userAgent = bytes(click.userAgent());
+        byte[] referrer = bytes(click.referrer());
+        ByteBuffer buffer = ByteBuffer.allocate(16 + 8 + 8 + 12 + 1 + 12 + lengthOf(ip) + lengthOf(userAgent)
+                + lengthOf(referrer));
+        buffer.putLong(click.clickId().getMostSignificantBits()).putLong(click.clickId().getLeastSignificantBits());
+        buffer.putLong(click.dealId());
+        buffer.putLong(click.userId() != null ? click.userId() : -1L);
+        buffer.putLong(click.clickTimestamp().toEpochSecond(ZoneOffset.UTC)).putInt(click.clickTimestamp().getNano());
+        buffer.put((byte) (click.suspicious() ? 1 : 0));
+        putBytes(buffer, ip);
+        putBytes(buffer, userAgent);
+        putBytes(buffer, referrer);
+        return buffer.array();
+    }
+
+    private static ClickEvent decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        UUID clickId = new UUID(buffer.getLong(), buffer.getLong());
+        long dealId = buffer.getLong();
+        long userId = buffer.getLong();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        boolean suspicious = buffer.get() == 1;
+        String ip = getString(buffer);
+        String userAgent = getString(buffer);
+        String referrer = getString(buffer);
+        return new ClickEvent(clickId, dealId, userId >= 0 ? userId : null, ip, userAgent, referrer, timestamp,
+                suspicious);
+    }
+
+    private static byte[] bytes(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes != null ? bytes.length : -1);
+        if (bytes != null) {
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
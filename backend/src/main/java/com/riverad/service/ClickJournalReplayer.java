@@ -0,0 +1,95 @@
+package com.riverad.service;
+
+import com.riverad.dto.ClickEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 后台回放点击日志：从 checkpoint 起按批读取，写库成功后推进 checkpoint 并删除已确认的段。
+ * 数据库不可用时保持进度不变，按指数退避重试，期间点击继续写入日志。
+ */
+@Service
+public class ClickJournalReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickJournalReplayer.class);
+
+    @Autowired
+    private ClickJournal clickJournal;
+
+    @Autowired
+    private ClickIngestionService clickIngestionService;
+
+    @Value("${app.affiliate.journal.replay-batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.affiliate.journal.idle-poll-ms:100}")
+    private long idlePollMs;
+
+    @Value("${app.affiliate.journal.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!clickJournal.isEnabled()) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::replayLoop, "click-journal-replayer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+    }
+
+    private void replayLoop() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+        long backoff = idlePollMs;
+        while (running) {
+            try {
+                batch.clear();
+                ClickJournal.Position next = clickJournal.read(clickJournal.checkpoint(), batchSize, batch);
+                if (!batch.isEmpty()) {
+                    clickIngestionService.writeReplayed(batch);
+                }
+                if (!next.equals(clickJournal.checkpoint())) {
+                    clickJournal.acknowledge(next);
+                }
+                backoff = idlePollMs;
+                if (batch.size() < batchSize) {
+                    Thread.sleep(idlePollMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+                log.warn("Click journal replay failed, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
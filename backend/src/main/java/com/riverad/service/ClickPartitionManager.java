@@ -0,0 +1,388 @@
+package com.riverad.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 点击表按时间分区与保留。PostgreSQL（14 及以上）上把 affiliate_clicks 改为按 click_timestamp 的范围分区表：
+ * 当前周期起的数据移入新建的周期分区，原表只保留更早的数据，作为 (MINVALUE, 当前周期) 的历史分区挂接；
+ * 父表重建主键 (click_id, click_timestamp) 和指向 deals、users 的外键，重复点击和无效引用照常被拒绝。
+ * 不设默认分区，后续若干周期的分区提前创建，按时间过滤的统计查询只扫描相关分区。
+ * 超过保留期的分区先并发分离（不阻塞父表上的写入和查询），再按天、按优惠汇总到 affiliate_click_rollups 后删除；
+ * 历史分区和非 PostgreSQL 数据库（如本地 H2）上的过期数据同样先汇总，再分块删除。
+ * 保留任务在独立线程上执行，不占用启动线程和共用的定时任务线程。
+ */
+@Service
+public class ClickPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickPartitionManager.class);
+
+    private static final String TABLE = "affiliate_clicks";
+    private static final String LEGACY_PARTITION = "affiliate_clicks_legacy";
+    private static final String PARTITION_PREFIX = "affiliate_clicks_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    // 原表改名为历史分区，其索引一并改名，父表再建同名索引时 PostgreSQL 会直接挂接分区上的等价索引
+    private static final List<String> CONVERT_DDL = List.of(
+            "ALTER TABLE affiliate_clicks RENAME TO affiliate_clicks_legacy",
+            "ALTER INDEX IF EXISTS idx_affiliate_clicks_deal_time RENAME TO affiliate_clicks_legacy_deal_time",
+            "ALTER INDEX IF EXISTS idx_affiliate_clicks_time RENAME TO affiliate_clicks_legacy_time",
+            "CREATE TABLE affiliate_clicks (LIKE affiliate_clicks_legacy INCLUDING DEFAULTS) " +
+                    "PARTITION BY RANGE (click_timestamp)");
+
+    // 分区表的主键必须包含分区键；同一点击的重放时间戳相同，仍会被主键拒绝。按点击ID查询走主键索引前缀
+    private static final Map<String, String> CONSTRAINT_DDL = Map.of(
+            "pk_affiliate_clicks", "ALTER TABLE affiliate_clicks ADD CONSTRAINT pk_affiliate_clicks " +
+                    "PRIMARY KEY (click_id, click_timestamp)",
+            "fk_affiliate_clicks_deal", "ALTER TABLE affiliate_clicks ADD CONSTRAINT fk_affiliate_clicks_deal " +
+                    "FOREIGN KEY (deal_id) REFERENCES deals (id)",
+            "fk_affiliate_clicks_user", "ALTER TABLE affiliate_clicks ADD CONSTRAINT fk_affiliate_clicks_user " +
+                    "FOREIGN KEY (user_id) REFERENCES users (id)");
+
+    private static final List<String> INDEX_DDL = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_affiliate_clicks_deal_time ON affiliate_clicks (deal_id, click_timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_affiliate_clicks_time ON affiliate_clicks (click_timestamp)");
+
+    // LIKE 中的下划线是通配符，需转义
+    private static final String PARTITION_PATTERN = PARTITION_PREFIX.replace("_", "\\_") + "%";
+
+    private static final String ROLLUP_SELECT = "SELECT CAST(click_timestamp AS DATE) AS rollup_date, deal_id, " +
+            "COUNT(*) AS clicks, " +
+            "SUM(CASE WHEN suspicious = true THEN 1 ELSE 0 END) AS suspicious_clicks, " +
+            "SUM(CASE WHEN converted = true THEN 1 ELSE 0 END) AS conversions, " +
+            "SUM(commission_amount) AS commission_amount FROM ";
+
+    private static final String ROLLUP_UPDATE = "UPDATE affiliate_click_rollups SET clicks = clicks + ?, " +
+            "suspicious_clicks = suspicious_clicks + ?, conversions = conversions + ?, " +
+            "commission_amount = COALESCE(commission_amount, 0) + ? WHERE rollup_date = ? AND deal_id = ?";
+
+    private static final String ROLLUP_INSERT = "INSERT INTO affiliate_click_rollups " +
+            "(rollup_date, deal_id, clicks, suspicious_clicks, conversions, commission_amount) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private record Rollup(LocalDate date, long dealId, long clicks, long suspicious, long conversions, double commission) {}
+
+    private record Partition(String name, boolean detachPending) {}
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.affiliate.partitioning.enabled:true}")
+    private boolean enabled;
+
+    // 分区粒度：month / week / day
+    @Value("${app.affiliate.partitioning.interval:month}")
+    private String intervalName;
+
+    @Value("${app.affiliate.partitioning.premake:3}")
+    private int premake;
+
+    // 保留的周期数（含当前周期），早于此的原始点击汇总后删除；0 表示不清理
+    @Value("${app.affiliate.partitioning.retention:12}")
+    private int retention;
+
+    // 历史分区及普通表每个事务删除的行数
+    @Value("${app.affiliate.partitioning.retention-chunk-size:1000}")
+    private int retentionChunkSize;
+
+    private ChronoUnit interval;
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean partitioned;
+    // 创建失败的周期（与已有分区范围重叠等），不再重试，避免每轮维护都对父表加锁
+    private final Set<LocalDate> conflictingPeriods = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean retentionRunning = new AtomicBoolean();
+    private final ExecutorService retentionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "click-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        interval = switch (intervalName.trim().toLowerCase(Locale.ROOT)) {
+            case "day" -> ChronoUnit.DAYS;
+            case "week" -> ChronoUnit.WEEKS;
+            default -> ChronoUnit.MONTHS;
+        };
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (enabled && isPostgres()) {
+            try {
+                convertIfNeeded();
+                transactionTemplate.executeWithoutResult(status -> addMissingConstraints());
+                INDEX_DDL.forEach(jdbcTemplate::execute);
+                partitioned = true;
+            } catch (RuntimeException e) {
+                log.warn("Failed to set up partitioned click storage, keeping a plain table", e);
+            }
+        }
+        maintain();
+    }
+
+    /**
+     * 提前创建分区（很快，直接执行），保留清理交给独立线程，上一轮未结束时跳过。
+     */
+    @Scheduled(initialDelayString = "${app.affiliate.partitioning.maintenance-interval-ms:3600000}",
+               fixedDelayString = "${app.affiliate.partitioning.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        if (interval == null) {
+            return;
+        }
+        LocalDate current = periodStart(LocalDate.now());
+        if (partitioned) {
+            for (int i = 0; i <= premake; i++) {
+                createPartition(current.plus(i, interval));
+            }
+        }
+        if (retention > 0 && retentionRunning.compareAndSet(false, true)) {
+            LocalDate cutoff = current.minus(retention - 1L, interval);
+            retentionExecutor.execute(() -> {
+                try {
+                    applyRetention(cutoff);
+                } catch (RuntimeException e) {
+                    log.warn("Click retention failed, will retry on the next maintenance run", e);
+                } finally {
+                    retentionRunning.set(false);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retentionExecutor.shutdownNow();
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            log.warn("Could not detect database type, click partitioning disabled", e);
+            return false;
+        }
+    }
+
+    private void convertIfNeeded() {
+        String kind = jdbcTemplate.queryForObject("SELECT CAST(c.relkind AS VARCHAR) FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE c.relname = ? AND n.nspname = current_schema()",
+                String.class, TABLE);
+        if ("p".equals(kind)) {
+            return;
+        }
+        LocalDate current = periodStart(LocalDate.now());
+        Timestamp boundary = Timestamp.valueOf(current.atStartOfDay());
+        Integer moved = transactionTemplate.execute(status -> {
+            CONVERT_DDL.forEach(jdbcTemplate::execute);
+            addMissingConstraints();
+            for (int i = 0; i <= premake; i++) {
+                jdbcTemplate.execute(partitionDdl(current.plus(i, interval)));
+            }
+            // 当前周期起的数据移入周期分区，落在已建分区之外的数据（时间异常）会使整个转换回滚
+            int rows = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + LEGACY_PARTITION +
+                    " WHERE click_timestamp >= ?", boundary);
+            jdbcTemplate.update("DELETE FROM " + LEGACY_PARTITION + " WHERE click_timestamp >= ?", boundary);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + LEGACY_PARTITION +
+                    " FOR VALUES FROM (MINVALUE) TO ('" + current.atStartOfDay() + "')");
+            return rows;
+        });
+        log.info("Converted {} to a range-partitioned table, moved {} clicks since {} into period partitions, " +
+                "older rows kept in {}", TABLE, moved, current, LEGACY_PARTITION);
+    }
+
+    private void addMissingConstraints() {
+        CONSTRAINT_DDL.forEach((name, ddl) -> {
+            Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_constraint " +
+                    "WHERE conrelid = to_regclass(?) AND conname = ?", Integer.class, TABLE, name);
+            if (found == null || found == 0) {
+                jdbcTemplate.execute(ddl);
+            }
+        });
+    }
+
+    /**
+     * 新周期的分区不会与已有分区重叠，创建失败（如调整过分区粒度）时记录该周期，之后不再尝试。
+     */
+    private void createPartition(LocalDate start) {
+        if (conflictingPeriods.contains(start)) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute(partitionDdl(start));
+        } catch (RuntimeException e) {
+            conflictingPeriods.add(start);
+            log.warn("Could not create click partition for period starting {}, not retrying: {}", start,
+                    e.getMessage());
+        }
+    }
+
+    private String partitionDdl(LocalDate start) {
+        return "CREATE TABLE IF NOT EXISTS " + PARTITION_PREFIX + start.format(SUFFIX) + " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + start.atStartOfDay() + "') TO ('" + start.plus(1, interval).atStartOfDay() + "')";
+    }
+
+    private void applyRetention(LocalDate cutoff) {
+        if (partitioned) {
+            for (Partition partition : partitions()) {
+                if (expired(partition.name(), cutoff)) {
+                    detach(partition);
+                }
+            }
+            // 分离后的表不再接收写入，汇总与删除在同一事务内；上次分离后未及删除的表也在这里处理
+            for (String table : detachedPartitions()) {
+                if (expired(table, cutoff)) {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        long clicks = rollup(table, "", new Object[0]);
+                        jdbcTemplate.execute("DROP TABLE " + table);
+                        log.info("Rolled up {} clicks and dropped partition {}", clicks, table);
+                    });
+                }
+            }
+        }
+        String table = partitioned ? LEGACY_PARTITION : TABLE;
+        Timestamp before = Timestamp.valueOf(cutoff.atStartOfDay());
+        long total = 0;
+        long removed;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            removed = removeChunk(table, before);
+            total += removed;
+        } while (removed > 0);
+        if (total > 0) {
+            log.info("Rolled up and removed {} clicks older than {} from {}", total, cutoff, table);
+        }
+    }
+
+    /**
+     * 在一个事务内锁定一块过期行（FOR UPDATE），汇总后按点击ID删除，返回删除的行数。
+     */
+    private long removeChunk(String table, Timestamp before) {
+        Long removed = transactionTemplate.execute(status -> {
+            List<UUID> ids = jdbcTemplate.queryForList("SELECT click_id FROM " + table +
+                    " WHERE click_timestamp < ? LIMIT " + retentionChunkSize + " FOR UPDATE", UUID.class, before);
+            if (ids.isEmpty()) {
+                return 0L;
+            }
+            String in = " WHERE click_id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+            rollup(table, in, ids.toArray());
+            jdbcTemplate.update("DELETE FROM " + table + in, ids.toArray());
+            return (long) ids.size();
+        });
+        return removed != null ? removed : 0;
+    }
+
+    /**
+     * CONCURRENTLY 只对父表加 SHARE UPDATE EXCLUSIVE 锁，点击写入和查询照常进行，但不能在事务内执行；
+     * 上次分离中途中断的分区处于待分离状态，用 FINALIZE 完成。
+     */
+    private void detach(Partition partition) {
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition.name() +
+                (partition.detachPending() ? " FINALIZE" : " CONCURRENTLY"));
+    }
+
+    private boolean expired(String partition, LocalDate cutoff) {
+        LocalDate start = partitionStart(partition);
+        return start != null && !start.plus(1, interval).isAfter(cutoff);
+    }
+
+    private List<Partition> partitions() {
+        return jdbcTemplate.query("SELECT c.relname, i.inhdetachpending FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ? AND c.relname LIKE ?",
+                (rs, i) -> new Partition(rs.getString(1), rs.getBoolean(2)), TABLE, PARTITION_PATTERN);
+    }
+
+    private List<String> detachedPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = current_schema() " +
+                "AND c.relkind = 'r' AND NOT c.relispartition AND c.relname LIKE ?", String.class, PARTITION_PATTERN);
+    }
+
+    private static LocalDate partitionStart(String partition) {
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把表中满足 where 条件的点击按天、按优惠累加到汇总表，返回汇总的点击数。
+     */
+    private long rollup(String table, String where, Object[] args) {
+        String sql = ROLLUP_SELECT + table + where + " GROUP BY CAST(click_timestamp AS DATE), deal_id";
+        List<Rollup> rows = jdbcTemplate.query(sql, (rs, i) -> new Rollup(rs.getDate("rollup_date").toLocalDate(),
+                rs.getLong("deal_id"), rs.getLong("clicks"), rs.getLong("suspicious_clicks"),
+                rs.getLong("conversions"), rs.getDouble("commission_amount")), args);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Rollup row : rows) {
+            updates.add(new Object[]{row.clicks(), row.suspicious(), row.conversions(), row.commission(),
+                    Date.valueOf(row.date()), row.dealId()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(ROLLUP_UPDATE, updates);
+        List<Object[]> inserts = new ArrayList<>();
+        long clicks = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Rollup row = rows.get(i);
+            clicks += row.clicks();
+            if (updated[i] == 0) {
+                inserts.add(new Object[]{Date.valueOf(row.date()), row.dealId(), row.clicks(), row.suspicious(),
+                        row.conversions(), row.commission()});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(ROLLUP_INSERT, inserts);
+        }
+        return clicks;
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return switch (interval) {
+            case DAYS -> date;
+            case WEEKS -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            default -> date.withDayOfMonth(1);
+        };
+    }
+}
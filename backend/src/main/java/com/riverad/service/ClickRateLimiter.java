@@ -0,0 +1,93 @@
+package com.riverad.service;
+
+import com.riverad.utils.TokenBucketLimiter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * 点击接口的内存限流，替代按 IP 查询最近点击记录。每个接口分别限制单个 IP 和单个 IP+优惠的频率，
+ * 次数为0表示不限制。桶数量有上限，空闲桶定时清理。
+ */
+@Service
+public class ClickRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickRateLimiter.class);
+
+    public enum Endpoint {
+        TRACK, REDIRECT
+    }
+
+    @Value("${app.affiliate.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${app.affiliate.rate-limit.shards:64}")
+    private int shards;
+
+    @Value("${app.affiliate.rate-limit.window-ms:60000}")
+    private long windowMs;
+
+    @Value("${app.affiliate.rate-limit.track.per-ip:1}")
+    private int trackPerIp;
+
+    @Value("${app.affiliate.rate-limit.track.per-ip-deal:0}")
+    private int trackPerIpDeal;
+
+    @Value("${app.affiliate.rate-limit.redirect.per-ip:60}")
+    private int redirectPerIp;
+
+    @Value("${app.affiliate.rate-limit.redirect.per-ip-deal:5}")
+    private int redirectPerIpDeal;
+
+    private TokenBucketLimiter[] perIp;
+    private TokenBucketLimiter[] perIpDeal;
+
+    @PostConstruct
+    public void init() {
+        perIp = new TokenBucketLimiter[]{create(trackPerIp), create(redirectPerIp)};
+        perIpDeal = new TokenBucketLimiter[]{create(trackPerIpDeal), create(redirectPerIpDeal)};
+    }
+
+    /**
+     * 判断该 IP 本次请求是否放行，放行时同时扣减 IP 和 IP+优惠两个桶；
+     * IP+优惠桶拒绝时归还已扣的 IP 令牌，被拒绝的请求不占用 IP 的额度。
+     */
+    public boolean tryAcquire(Endpoint endpoint, String ipAddress, Long dealId) {
+        long now = System.nanoTime();
+        String ip = ipAddress != null ? ipAddress : "";
+        TokenBucketLimiter ipLimiter = perIp[endpoint.ordinal()];
+        if (ipLimiter != null && !ipLimiter.tryAcquire(ip, now)) {
+            return false;
+        }
+        TokenBucketLimiter dealLimiter = perIpDeal[endpoint.ordinal()];
+        if (dealLimiter == null || dealId == null || dealLimiter.tryAcquire(ip + '|' + dealId, now)) {
+            return true;
+        }
+        if (ipLimiter != null) {
+            ipLimiter.release(ip);
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.affiliate.rate-limit.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (TokenBucketLimiter limiter : perIp) {
+            evicted += limiter != null ? limiter.evictIdle(now) : 0;
+        }
+        for (TokenBucketLimiter limiter : perIpDeal) {
+            evicted += limiter != null ? limiter.evictIdle(now) : 0;
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    private TokenBucketLimiter create(int permits) {
+        return permits > 0 ? new TokenBucketLimiter(permits, windowMs, maxKeys, shards) : null;
+    }
+}
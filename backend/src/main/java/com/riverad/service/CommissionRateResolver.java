@@ -0,0 +1,142 @@
+package com.riverad.service;
+
+import com.riverad.event.DealChangedEvent;
+import com.riverad.event.StoreChangedEvent;
+import com.riverad.repository.DealRepository;
+import com.riverad.repository.StoreRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 佣金比例解析：优惠自身比例 → 所属商店比例 → 默认比例（app.affiliate.default-commission-rate）。
+ * 全部优惠（含已下线）与商店的比例常驻内存，启动时和定期整表加载，优惠或商店变更后单条刷新；
+ * 记录转化时只查内存，不经由懒加载关联访问数据库。
+ */
+@Service
+public class CommissionRateResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CommissionRateResolver.class);
+
+    private record Table(Map<Long, Double> dealRates, Map<Long, Long> dealStores, Map<Long, Double> storeRates) {
+
+        static Table empty() {
+            return new Table(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Value("${app.affiliate.default-commission-rate:0.05}")
+    private Double defaultCommissionRate;
+
+    private volatile Table table = Table.empty();
+
+    /**
+     * 返回优惠当前适用的佣金比例。表中没有的优惠（刚创建、事件尚未处理）查一次库后加入表中。
+     */
+    public double resolve(Long dealId) {
+        Table current = table;
+        Double dealRate = current.dealRates().get(dealId);
+        if (dealRate != null) {
+            return dealRate;
+        }
+        if (!current.dealStores().containsKey(dealId)) {
+            refreshDeal(dealId);
+            current = table;
+            dealRate = current.dealRates().get(dealId);
+            if (dealRate != null) {
+                return dealRate;
+            }
+        }
+        Long storeId = current.dealStores().get(dealId);
+        Double storeRate = storeId != null ? current.storeRates().get(storeId) : null;
+        return storeRate != null ? storeRate : defaultCommissionRate;
+    }
+
+    /**
+     * 优惠所属商店，未知或无商店时为空。
+     */
+    public Long storeOf(Long dealId) {
+        Long storeId = table.dealStores().get(dealId);
+        return storeId != null && storeId > 0 ? storeId : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.affiliate.commission.refresh-interval-ms:300000}",
+               fixedDelayString = "${app.affiliate.commission.refresh-interval-ms:300000}")
+    public synchronized void refresh() {
+        Table loaded = Table.empty();
+        for (Object[] row : storeRepository.findCommissionRates()) {
+            putStore(loaded, (Long) row[0], (BigDecimal) row[1]);
+        }
+        for (Object[] row : dealRepository.findCommissionRates()) {
+            putDeal(loaded, (Long) row[0], (Long) row[1], (Double) row[2]);
+        }
+        table = loaded;
+        log.debug("Loaded commission rates for {} deals and {} stores", loaded.dealStores().size(),
+                loaded.storeRates().size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDealChanged(DealChangedEvent event) {
+        if (event.getType() == DealChangedEvent.Type.DELETED) {
+            removeDeal(event.getDealId());
+        } else {
+            refreshDeal(event.getDealId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStoreChanged(StoreChangedEvent event) {
+        Table current = table;
+        current.storeRates().remove(event.getStoreId());
+        storeRepository.findCommissionRateById(event.getStoreId())
+                .ifPresent(rate -> putStore(current, event.getStoreId(), rate));
+    }
+
+    private synchronized void refreshDeal(Long dealId) {
+        List<Object[]> rows = dealRepository.findCommissionRateById(dealId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        Object[] row = rows.get(0);
+        Table current = table;
+        current.dealRates().remove(dealId);
+        putDeal(current, dealId, (Long) row[1], (Double) row[2]);
+    }
+
+    private synchronized void removeDeal(Long dealId) {
+        table.dealRates().remove(dealId);
+        table.dealStores().remove(dealId);
+    }
+
+    // ConcurrentHashMap 不接受 null，无商店的优惠记为 0
+    private static void putDeal(Table table, Long dealId, Long storeId, Double rate) {
+        table.dealStores().put(dealId, storeId != null ? storeId : 0L);
+        if (rate != null) {
+            table.dealRates().put(dealId, rate);
+        }
+    }
+
+    private static void putStore(Table table, Long storeId, BigDecimal rate) {
+        if (rate != null) {
+            table.storeRates().put(storeId, rate.doubleValue());
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.riverad.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.riverad.dto.ConversionImportResult;
+import com.riverad.dto.ConversionImportResult.Status;
+import com.riverad.utils.ClickIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * 批量导入联盟网络的转化回传（CSV 或 NDJSON）。按行流式解析，不把整个文件读入内存；
+ * 每攒满一块先用一条 IN 查询取出对应点击，佣金比例由 {@link CommissionRateResolver} 从内存解析，
+ * 再在同一事务里批量 UPDATE。UPDATE 带 converted = false 条件，与单条接口或其他导入并发时不会重复记转化。
+ */
+@Service
+public class ConversionImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionImportService.class);
+
+    private static final String LOOKUP_PREFIX = "SELECT click_id, deal_id, converted FROM affiliate_clicks " +
+            "WHERE click_id IN (";
+
+    private static final String UPDATE_SQL = "UPDATE affiliate_clicks SET converted = true, conversion_timestamp = ?, " +
+            "order_amount = ?, commission_amount = ? WHERE click_id = ? AND converted = false";
+
+    public enum Format {
+        CSV, NDJSON;
+
+        /**
+         * 优先使用显式指定的格式，否则按 Content-Type 判断，默认 CSV。
+         */
+        public static Format of(String name, String contentType) {
+            if (name != null && !name.isBlank()) {
+                try {
+                    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("不支持的导入格式: " + name);
+                }
+            }
+            return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json") ? NDJSON : CSV;
+        }
+    }
+
+    private record Row(long line, String rawClickId, UUID clickId, double orderAmount, LocalDateTime convertedAt) {}
+
+    private record Click(long dealId, boolean converted) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CommissionRateResolver commissionRateResolver;
+
+    // 每块的行数，即一次查询的 IN 参数个数和一个事务内的更新条数
+    @Value("${app.affiliate.conversion-import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.affiliate.conversion-import.max-reported-rows:1000}")
+    private int maxReportedRows;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    private TransactionTemplate transactionTemplate;
+    private TimeZone timeZone;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        timeZone = jdbcTimeZone.isBlank() ? null : TimeZone.getTimeZone(jdbcTimeZone);
+    }
+
+    public ConversionImportResult importConversions(InputStream input, Format format) throws IOException {
+        long started = System.currentTimeMillis();
+        ConversionImportResult result = new ConversionImportResult(maxReportedRows);
+        LocalDateTime importedAt = LocalDateTime.now();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowParser parser = format == Format.NDJSON ? new JsonRowParser() : new CsvRowParser();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        String text;
+        long line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (line == 1 && text.startsWith("\uFEFF")) {
+                text = text.substring(1);
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                Row row = parser.parse(line, text, importedAt);
+                if (row == null) {
+                    continue;
+                }
+                chunk.add(row);
+            } catch (IllegalArgumentException e) {
+                result.reject(line, null, Status.INVALID, e.getMessage());
+                continue;
+            }
+            if (chunk.size() >= chunkSize) {
+                apply(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            apply(chunk, result);
+        }
+
+        result.setElapsedMs(System.currentTimeMillis() - started);
+        log.info("Imported conversions: {} rows, {} converted, {} not found, {} already converted, {} invalid, " +
+                        "{} failed in {} ms", result.getTotal(), result.getConverted(), result.getNotFound(),
+                result.getAlreadyConverted(), result.getInvalid(), result.getFailed(), result.getElapsedMs());
+        return result;
+    }
+
+    /**
+     * 处理一块：块内重复的点击ID只取第一条，查询与更新在同一事务内完成。失败时整块回滚并记为 FAILED，继续处理后续块。
+     */
+    private void apply(List<Row> chunk, ConversionImportResult result) {
+        Map<UUID, Row> rows = new LinkedHashMap<>();
+        List<Row> duplicates = new ArrayList<>();
+        for (Row row : chunk) {
+            if (rows.putIfAbsent(row.clickId(), row) != null) {
+                duplicates.add(row);
+            }
+        }
+
+        List<Row> converted = new ArrayList<>();
+        List<ConversionImportResult.RowResult> rejected = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<UUID, Click> clicks = lookup(rows.keySet());
+                List<Row> updates = new ArrayList<>(rows.size());
+                List<Double> commissions = new ArrayList<>(rows.size());
+                for (Row row : rows.values()) {
+                    Click click = clicks.get(row.clickId());
+                    if (click == null) {
+                        rejected.add(new ConversionImportResult.RowResult(row.line(), row.rawClickId(),
+                                Status.NOT_FOUND, "点击记录不存在"));
+                    } else if (click.converted()) {
+                        rejected.add(new ConversionImportResult.RowResult(row.line(), row.rawClickId(),
+                                Status.ALREADY_CONVERTED, "此点击已记录转化"));
+                    } else {
+                        updates.add(row);
+                        commissions.add(row.orderAmount() * commissionRateResolver.resolve(click.dealId()));
+                    }
+                }
+                int[] counts = update(updates, commissions);
+                for (int i = 0; i < updates.size(); i++) {
+                    Row row = updates.get(i);
+                    // 查询之后被并发记为转化的行更新数为0；驱动不返回行数时（负值）按成功处理
+                    if (counts[i] == 0) {
+                        rejected.add(new ConversionImportResult.RowResult(row.line(), row.rawClickId(),
+                                Status.ALREADY_CONVERTED, "此点击已记录转化"));
+                    } else {
+                        converted.add(row);
+                    }
+                }
+            });
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Failed to apply conversion chunk of {} rows starting at line {}", chunk.size(),
+                    chunk.get(0).line(), e);
+            for (Row row : rows.values()) {
+                result.reject(row.line(), row.rawClickId(), Status.FAILED, "写入失败，请重试");
+            }
+            converted.clear();
+            rejected.clear();
+        }
+
+        converted.forEach(row -> result.accept());
+        rejected.forEach(row -> result.reject(row.getLine(), row.getClickId(), row.getStatus(), row.getMessage()));
+        for (Row row : duplicates) {
+            result.reject(row.line(), row.rawClickId(), Status.DUPLICATE, "文件中重复的点击ID");
+        }
+    }
+
+    private Map<UUID, Click> lookup(Collection<UUID> clickIds) {
+        String sql = LOOKUP_PREFIX + String.join(", ", Collections.nCopies(clickIds.size(), "?")) + ")";
+        Map<UUID, Click> clicks = new HashMap<>(clickIds.size() * 2);
+        jdbcTemplate.query(sql, rs -> {
+            clicks.put(rs.getObject("click_id", UUID.class),
+                    new Click(rs.getLong("deal_id"), rs.getBoolean("converted")));
+        }, clickIds.toArray());
+        return clicks;
+    }
+
+    private int[] update(List<Row> rows, List<Double> commissions) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Row row = rows.get(i);
+                Timestamp timestamp = Timestamp.valueOf(row.convertedAt());
+                if (timeZone != null) {
+                    statement.setTimestamp(1, timestamp, Calendar.getInstance(timeZone));
+                } else {
+                    statement.setTimestamp(1, timestamp);
+                }
+                statement.setDouble(2, row.orderAmount());
+                statement.setDouble(3, commissions.get(i));
+                statement.setObject(4, row.clickId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private interface RowParser {
+
+        /**
+         * 解析一行，返回 null 表示表头等非数据行；内容无效时抛出 IllegalArgumentException。
+         */
+        Row parse(long line, String text, LocalDateTime importedAt);
+    }
+
+    /**
+     * CSV：第一行含 click_id / clickId 列时视为表头，按列名取值；否则按 点击ID,订单金额[,转化时间] 的顺序。
+     * 支持双引号包裹的字段，不支持字段内换行。
+     */
+    private static class CsvRowParser implements RowParser {
+
+        private boolean first = true;
+        private int clickIdColumn = 0;
+        private int amountColumn = 1;
+        private int timeColumn = 2;
+
+        @Override
+        public Row parse(long line, String text, LocalDateTime importedAt) {
+            List<String> fields = split(text);
+            if (first) {
+                first = false;
+                if (readHeader(fields)) {
+                    return null;
+                }
+            }
+            String clickId = field(fields, clickIdColumn);
+            return row(line, clickId, field(fields, amountColumn), field(fields, timeColumn), importedAt);
+        }
+
+        private boolean readHeader(List<String> fields) {
+            List<String> names = fields.stream()
+                    .map(name -> name.replace("_", "").replace("-", "").toLowerCase(Locale.ROOT))
+                    .toList();
+            if (!names.contains("clickid")) {
+                return false;
+            }
+            clickIdColumn = names.indexOf("clickid");
+            amountColumn = names.contains("orderamount") ? names.indexOf("orderamount") : names.indexOf("amount");
+            timeColumn = names.indexOf("conversiontime");
+            return true;
+        }
+
+        private static String field(List<String> fields, int column) {
+            return column >= 0 && column < fields.size() ? fields.get(column) : null;
+        }
+
+        private static List<String> split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString().trim());
+            return fields;
+        }
+    }
+
+    /**
+     * NDJSON：每行一个对象，字段为 clickId、orderAmount、可选的 conversionTime（也接受下划线命名）。
+     */
+    private class JsonRowParser implements RowParser {
+
+        @Override
+        public Row parse(long line, String text, LocalDateTime importedAt) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("JSON格式无效");
+            }
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException("JSON格式无效");
+            }
+            return row(line, value(node, "clickId", "click_id"), value(node, "orderAmount", "order_amount"),
+                    value(node, "conversionTime", "conversion_time"), importedAt);
+        }
+
+        private static String value(JsonNode node, String name, String alias) {
+            JsonNode value = node.hasNonNull(name) ? node.get(name) : node.get(alias);
+            return value != null && !value.isNull() ? value.asText() : null;
+        }
+    }
+
+    private static Row row(long line, String clickId, String amount, String time, LocalDateTime importedAt) {
+        if (clickId == null || clickId.isBlank()) {
+            throw new IllegalArgumentException("点击ID不能为空");
+        }
+        UUID id = ClickIdGenerator.decode(clickId.trim());
+        double orderAmount;
+        try {
+            orderAmount = Double.parseDouble(amount != null ? amount.trim() : "");
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("订单金额无效: " + amount);
+        }
+        if (!Double.isFinite(orderAmount) || orderAmount < 0) {
+            throw new IllegalArgumentException("订单金额无效: " + amount);
+        }
+        return new Row(line, clickId.trim(), id, orderAmount, parseTime(time, importedAt));
+    }
+
+    /**
+     * 转化时间接受 ISO-8601 本地时间或带时区偏移的时间（转换为服务器时区），为空时使用导入时间。
+     */
+    private static LocalDateTime parseTime(String time, LocalDateTime importedAt) {
+        if (time == null || time.isBlank()) {
+            return importedAt;
+        }
+        try {
+            return LocalDateTime.parse(time.trim());
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(time.trim()).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            } catch (DateTimeParseException ignored) {
+                throw new IllegalArgumentException("转化时间格式无效: " + time);
+            }
+        }
+    }
+}
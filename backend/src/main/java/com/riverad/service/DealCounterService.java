@@ -0,0 +1,167 @@
+package com.riverad.service;
+
+import com.riverad.event.DealChangedEvent;
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 优惠点击数和浏览数的内存计数。请求线程只对分段计数器加一，定时任务把增量合并成
+ * UPDATE deals SET click_count = click_count + ? 批量写回，不再逐次读改写实体，也不会触发快照重建。
+ * 读取时把库中的值加上尚未写回（或尚未进入快照）的增量。
+ */
+@Service
+public class DealCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(DealCounterService.class);
+
+    private static final String INCREMENT_CLICKS = "UPDATE deals SET click_count = COALESCE(click_count, 0) + ? WHERE id = ?";
+    private static final String INCREMENT_VIEWS = "UPDATE deals SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?";
+
+    /**
+     * total 为启动以来的累计值，只增不减；flushed 为已写回数据库的部分，
+     * snapshotted 为当前快照加载时已写回的部分。
+     */
+    private static final class Counter {
+        final LongAdder total = new LongAdder();
+        volatile long flushed;
+        volatile long snapshotted;
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Long, Counter> clicks = new ConcurrentHashMap<>();
+    private final Map<Long, Counter> views = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+    private LocalDateTime snapshotBuiltAt;
+    private volatile Map<Counter, Long> loadedFlushed = Map.of();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void recordClick(Long dealId) {
+        clicks.computeIfAbsent(dealId, id -> new Counter()).total.increment();
+    }
+
+    public void recordView(Long dealId) {
+        views.computeIfAbsent(dealId, id -> new Counter()).total.increment();
+    }
+
+    /**
+     * 尚未写回数据库的点击数，用于合并直接从库中读出的值。
+     */
+    public long pendingClicks(Long dealId) {
+        Counter counter = clicks.get(dealId);
+        return counter == null ? 0 : counter.total.sum() - counter.flushed;
+    }
+
+    public long pendingViews(Long dealId) {
+        Counter counter = views.get(dealId);
+        return counter == null ? 0 : counter.total.sum() - counter.flushed;
+    }
+
+    /**
+     * 当前快照之后新增的点击数，用于合并快照中的卡片。
+     */
+    public long unsnapshottedClicks(Long dealId) {
+        Counter counter = clicks.get(dealId);
+        return counter == null ? 0 : counter.total.sum() - counter.snapshotted;
+    }
+
+    @Scheduled(fixedDelayString = "${app.deals.counters.flush-interval-ms:5000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Object[]> clickArgs = new ArrayList<>();
+        List<Object[]> viewArgs = new ArrayList<>();
+        Map<Counter, Long> totals = new IdentityHashMap<>();
+        collect(clicks, clickArgs, totals);
+        collect(views, viewArgs, totals);
+        if (totals.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!clickArgs.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INCREMENT_CLICKS, clickArgs);
+                }
+                if (!viewArgs.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INCREMENT_VIEWS, viewArgs);
+                }
+            });
+            totals.forEach((counter, total) -> counter.flushed = total);
+        } catch (RuntimeException e) {
+            // 增量保留在内存中，下一轮重试
+            log.warn("Failed to flush {} click and {} view counters", clickArgs.size(), viewArgs.size(), e);
+        }
+    }
+
+    /**
+     * 快照从库中加载时调用：加载期间与 flush 互斥，库中的计数恰好等于各计数器的 flushed，
+     * 记下这组值，待对应的快照事件到达时作为 snapshotted 生效。加载之后、事件之前完成的写回不计入快照。
+     */
+    public synchronized <T> T loadSnapshot(Supplier<T> loader) {
+        T loaded = loader.get();
+        Map<Counter, Long> flushed = new IdentityHashMap<>(clicks.size());
+        for (Counter counter : clicks.values()) {
+            flushed.put(counter, counter.flushed);
+        }
+        loadedFlushed = flushed;
+        return loaded;
+    }
+
+    @EventListener
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        // 剔除过期生成的快照沿用原有实体，计数并未重新加载
+        LocalDateTime builtAt = event.getSnapshot().getBuiltAt();
+        if (builtAt.equals(snapshotBuiltAt)) {
+            return;
+        }
+        snapshotBuiltAt = builtAt;
+        // 加载之后才出现的计数器在快照中没有任何写回，snapshotted 保持为0
+        loadedFlushed.forEach((counter, flushed) -> counter.snapshotted = flushed);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDealChanged(DealChangedEvent event) {
+        if (event.getType() == DealChangedEvent.Type.DELETED) {
+            clicks.remove(event.getDealId());
+            views.remove(event.getDealId());
+        }
+    }
+
+    private static void collect(Map<Long, Counter> counters, List<Object[]> args, Map<Counter, Long> totals) {
+        counters.forEach((dealId, counter) -> {
+            long total = counter.total.sum();
+            long delta = total - counter.flushed;
+            if (delta > 0) {
+                args.add(new Object[]{delta, dealId});
+                totals.put(counter, total);
+            }
+        });
+    }
+}
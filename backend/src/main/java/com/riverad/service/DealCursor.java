@@ -0,0 +1,152 @@
+package com.riverad.service;
+
+import com.riverad.dto.DealCard;
+import com.riverad.model.Deal;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 不透明的键集分页游标，编码上一页最后一条记录的排序键 (createdAt, id)、(clickCount, id)
+ * 或 (热度分/相关度, id)。
+ */
+public final class DealCursor {
+
+    public enum Sort {
+        NEWEST("n"),
+        POPULARITY("p"),
+        TRENDING("t"),
+        RELEVANCE("r");
+
+        private final String code;
+
+        Sort(String code) {
+            this.code = code;
+        }
+
+        public static Sort fromParam(String sortBy) {
+            if (sortBy == null || sortBy.isBlank() || "newest".equalsIgnoreCase(sortBy)) {
+                return NEWEST;
+            }
+            if ("popularity".equalsIgnoreCase(sortBy)) {
+                return POPULARITY;
+            }
+            if ("trending".equalsIgnoreCase(sortBy)) {
+                return TRENDING;
+            }
+            throw new IllegalArgumentException("不支持的排序方式: " + sortBy);
+        }
+
+        static Sort fromCode(String code) {
+            for (Sort sort : values()) {
+                if (sort.code.equals(code)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    private static final String SEPARATOR = "|";
+
+    private final Sort sort;
+    private final LocalDateTime createdAt;
+    private final int clickCount;
+    private final double score;
+    private final Long id;
+
+    private DealCursor(Sort sort, LocalDateTime createdAt, int clickCount, double score, Long id) {
+        this.sort = sort;
+        this.createdAt = createdAt;
+        this.clickCount = clickCount;
+        this.score = score;
+        this.id = id;
+    }
+
+    public static DealCursor after(DealCard last, Sort sort) {
+        int clicks = last.clickCount() != null ? last.clickCount() : 0;
+        return new DealCursor(sort, last.createdAt(), clicks, 0.0, last.id());
+    }
+
+    public static DealCursor afterScore(Sort sort, double score, Long id) {
+        return new DealCursor(sort, null, 0, score, id);
+    }
+
+    /**
+     * 解析客户端传回的游标，空白表示从第一页开始，返回 null。
+     */
+    public static DealCursor decode(String token, Sort expected) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        try {
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            Sort sort = Sort.fromCode(parts[0]);
+            if (sort != expected) {
+                throw new IllegalArgumentException("分页游标与排序方式不匹配");
+            }
+            Long id = Long.valueOf(parts[2]);
+            if (sort == Sort.POPULARITY) {
+                return new DealCursor(sort, null, Integer.parseInt(parts[1]), 0.0, id);
+            }
+            if (sort == Sort.TRENDING || sort == Sort.RELEVANCE) {
+                return new DealCursor(sort, null, 0, Double.parseDouble(parts[1]), id);
+            }
+            return new DealCursor(sort, LocalDateTime.parse(parts[1]), 0, 0.0, id);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    public String encode() {
+        String key = switch (sort) {
+            case POPULARITY -> String.valueOf(clickCount);
+            case TRENDING, RELEVANCE -> String.valueOf(score);
+            default -> String.valueOf(createdAt);
+        };
+        String raw = sort.code + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 构造只含排序键的探针对象，用于在预排序数组中二分定位。
+     */
+    Deal probe() {
+        Deal probe = new Deal();
+        probe.setId(id);
+        probe.setCreatedAt(createdAt);
+        probe.setClickCount(clickCount);
+        return probe;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getClickCount() {
+        return clickCount;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,138 @@
+package com.riverad.service;
+
+import com.riverad.event.DealChangedEvent;
+import com.riverad.repository.DealRepository;
+import com.riverad.utils.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于分层时间轮的优惠上下线调度。到达 startDate 时把优惠纳入活跃快照，
+ * 到达 endDate 时批量把 is_active 置为 false 并从快照中剔除，读查询因此不再需要结束时间条件。
+ * is_active 同时表示人工上下架，开始时间不改写它，直接查库的搜索仍按 startDate 排除未开始的优惠。
+ */
+@Service
+public class DealLifecycleScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(DealLifecycleScheduler.class);
+
+    private enum Kind {
+        START, END
+    }
+
+    private record Timer(Long dealId, Kind kind, long deadline) {}
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+
+    @Value("${app.deals.lifecycle.batch-size:500}")
+    private int batchSize;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    // 1秒 x 60格，4层覆盖约150天，更远的任务进入溢出列表
+    private final TimingWheel<Timer> wheel = new TimingWheel<>(1000L, 60, 4, System.currentTimeMillis());
+    // 每个优惠当前有效的期限；时间轮中的旧任务触发时与此比对，不一致即视为已取消
+    private final Map<Long, Long> startDeadlines = new ConcurrentHashMap<>();
+    private final Map<Long, Long> endDeadlines = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.deals.lifecycle.reconcile-interval-ms:3600000}",
+               fixedDelayString = "${app.deals.lifecycle.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = dealRepository.deactivateAllExpired(now);
+        if (expired > 0) {
+            log.info("Reconciliation deactivated {} expired deals", expired);
+            dealSnapshotService.markDirty();
+        }
+        for (Object[] row : dealRepository.findLifecycleSchedule(now)) {
+            schedule((Long) row[0], (LocalDateTime) row[1], (LocalDateTime) row[2]);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDealChanged(DealChangedEvent event) {
+        if (event.getType() == DealChangedEvent.Type.DELETED) {
+            startDeadlines.remove(event.getDealId());
+            endDeadlines.remove(event.getDealId());
+            return;
+        }
+        schedule(event.getDealId(), event.getStartDate(), event.getEndDate());
+    }
+
+    @Scheduled(fixedDelayString = "${app.deals.lifecycle.tick-ms:1000}")
+    public void tick() {
+        List<Long> started = new ArrayList<>();
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(System.currentTimeMillis(), timer -> {
+            Map<Long, Long> deadlines = timer.kind() == Kind.START ? startDeadlines : endDeadlines;
+            if (deadlines.remove(timer.dealId(), timer.deadline())) {
+                (timer.kind() == Kind.START ? started : expired).add(timer.dealId());
+            }
+        });
+
+        if (!started.isEmpty()) {
+            dealSnapshotService.markDirty();
+        }
+        if (!expired.isEmpty()) {
+            expire(expired);
+        }
+    }
+
+    private void expire(List<Long> dealIds) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < dealIds.size(); from += batchSize) {
+            List<Long> batch = dealIds.subList(from, Math.min(from + batchSize, dealIds.size()));
+            try {
+                dealRepository.deactivateExpired(batch, now);
+            } catch (RuntimeException e) {
+                // 数据库暂不可用时下次全量对账会补上，内存中照常下线
+                log.warn("Failed to deactivate {} expired deals", batch.size(), e);
+            }
+        }
+        dealSnapshotService.evict(new HashSet<>(dealIds));
+    }
+
+    private void schedule(Long dealId, LocalDateTime startDate, LocalDateTime endDate) {
+        long now = System.currentTimeMillis();
+        if (startDate != null && toMillis(startDate) > now) {
+            scheduleOnce(startDeadlines, new Timer(dealId, Kind.START, toMillis(startDate)));
+        } else {
+            startDeadlines.remove(dealId);
+        }
+        if (endDate != null) {
+            scheduleOnce(endDeadlines, new Timer(dealId, Kind.END, toMillis(endDate)));
+        } else {
+            endDeadlines.remove(dealId);
+        }
+    }
+
+    /**
+     * 期限未变化时不重复入轮，避免每次点击更新都堆积任务。
+     */
+    private void scheduleOnce(Map<Long, Long> deadlines, Timer timer) {
+        Long previous = deadlines.put(timer.dealId(), timer.deadline());
+        if (previous == null || previous != timer.deadline()) {
+            wheel.schedule(timer, timer.deadline());
+        }
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+}
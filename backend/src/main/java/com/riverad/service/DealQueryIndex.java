@@ -0,0 +1,399 @@
+package com.riverad.service;
+
+import com.riverad.dto.DealCard;
+import com.riverad.dto.DealFacets;
+import com.riverad.dto.DealQuery;
+import com.riverad.model.Deal;
+import com.riverad.utils.CompressedBitmap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 基于快照的位图倒排索引。优惠按快照中的最新排序编号（序号越小越新），
+ * 分类、商店、货币、精选标记以及价格/折扣区间各自维护一个压缩位图，
+ * 多条件查询只做位图交并，不遍历优惠列表。
+ */
+public final class DealQueryIndex {
+
+    public enum Order {
+        NEWEST, POPULARITY, PRICE;
+
+        public static Order fromParam(String sortBy) {
+            if (sortBy == null || sortBy.isBlank() || "newest".equalsIgnoreCase(sortBy)) {
+                return NEWEST;
+            }
+            if ("popularity".equalsIgnoreCase(sortBy)) {
+                return POPULARITY;
+            }
+            if ("price".equalsIgnoreCase(sortBy)) {
+                return PRICE;
+            }
+            throw new IllegalArgumentException("不支持的排序方式: " + sortBy);
+        }
+    }
+
+    private enum Dimension {
+        CATEGORY, STORE, CURRENCY, FEATURED, PRICE, DISCOUNT
+    }
+
+    // 区间下界，最后一个区间无上界
+    private static final double[] PRICE_BOUNDS = {0, 10, 25, 50, 100, 250, 500, 1000};
+    private static final double[] DISCOUNT_BOUNDS = {0, 10, 20, 30, 40, 50, 60, 70, 80, 90};
+
+    private final DealSnapshot snapshot;
+    private final Deal[] deals;
+    private final CompressedBitmap all;
+    private final Map<Long, CompressedBitmap> byCategory;
+    private final Map<Long, CompressedBitmap> byStore;
+    private final Map<String, CompressedBitmap> byCurrency;
+    private final CompressedBitmap featured;
+    private final CompressedBitmap notFeatured;
+    private final RangeIndex price;
+    private final RangeIndex discount;
+    // 排序名次 -> 序号，及其逆映射
+    private final int[] popularityOrder;
+    private final int[] popularityRank;
+    private final int[] priceOrder;
+    private final int[] priceRank;
+
+    private DealQueryIndex(DealSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.deals = snapshot.deals().toArray(new Deal[0]);
+
+        CompressedBitmap.Builder allBuilder = CompressedBitmap.builder();
+        CompressedBitmap.Builder featuredBuilder = CompressedBitmap.builder();
+        CompressedBitmap.Builder notFeaturedBuilder = CompressedBitmap.builder();
+        Map<Long, CompressedBitmap.Builder> categories = new HashMap<>();
+        Map<Long, CompressedBitmap.Builder> stores = new HashMap<>();
+        Map<String, CompressedBitmap.Builder> currencies = new HashMap<>();
+        double[] prices = new double[deals.length];
+        double[] discounts = new double[deals.length];
+
+        for (int ordinal = 0; ordinal < deals.length; ordinal++) {
+            Deal deal = deals[ordinal];
+            allBuilder.add(ordinal);
+            (Boolean.TRUE.equals(deal.getIsFeatured()) ? featuredBuilder : notFeaturedBuilder).add(ordinal);
+            if (deal.getCategory() != null) {
+                categories.computeIfAbsent(deal.getCategory().getId(), k -> CompressedBitmap.builder()).add(ordinal);
+            }
+            if (deal.getStore() != null) {
+                stores.computeIfAbsent(deal.getStore().getId(), k -> CompressedBitmap.builder()).add(ordinal);
+            }
+            if (deal.getCurrency() != null) {
+                currencies.computeIfAbsent(normalizeCurrency(deal.getCurrency()), k -> CompressedBitmap.builder())
+                        .add(ordinal);
+            }
+            prices[ordinal] = deal.getSalePrice() != null ? deal.getSalePrice().doubleValue() : Double.NaN;
+            discounts[ordinal] = deal.getDiscountPercentage() != null ? deal.getDiscountPercentage() : Double.NaN;
+        }
+
+        this.all = allBuilder.build();
+        this.featured = featuredBuilder.build();
+        this.notFeatured = notFeaturedBuilder.build();
+        this.byCategory = build(categories);
+        this.byStore = build(stores);
+        this.byCurrency = build(currencies);
+        this.price = new RangeIndex(PRICE_BOUNDS, prices);
+        this.discount = new RangeIndex(DISCOUNT_BOUNDS, discounts);
+
+        this.popularityOrder = order(DealSnapshot.MOST_CLICKED);
+        this.popularityRank = inverse(popularityOrder);
+        this.priceOrder = order(DealSnapshot.CHEAPEST);
+        this.priceRank = inverse(priceOrder);
+    }
+
+    public static DealQueryIndex of(DealSnapshot snapshot) {
+        return new DealQueryIndex(snapshot);
+    }
+
+    public DealSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int size() {
+        return deals.length;
+    }
+
+    /**
+     * 计算满足条件的优惠序号集合。
+     */
+    public CompressedBitmap match(DealQuery query) {
+        return combine(clauses(query), isAny(query.getMatch()), null);
+    }
+
+    /**
+     * 一次性计算当前条件下各分面取值的数量。"全部满足"时采用多选分面语义：
+     * 某个维度的计数忽略该维度自身的条件，只叠加其他维度，便于用户在同一维度内切换或多选。
+     */
+    public DealFacets facets(DealQuery query, Order order, int page, int size) {
+        Map<Dimension, CompressedBitmap> clauses = clauses(query);
+        boolean any = isAny(query.getMatch());
+        CompressedBitmap matched = combine(clauses, any, null);
+        Page<DealCard> deals = page(matched, order, page, size);
+
+        Map<Long, Integer> categories = count(byCategory, base(clauses, any, matched, Dimension.CATEGORY));
+        Map<Long, Integer> stores = count(byStore, base(clauses, any, matched, Dimension.STORE));
+        Map<String, Integer> currencies = count(byCurrency, base(clauses, any, matched, Dimension.CURRENCY));
+
+        CompressedBitmap featuredBase = base(clauses, any, matched, Dimension.FEATURED);
+        Map<String, Integer> featuredCounts = new LinkedHashMap<>();
+        featuredCounts.put("true", featuredBase.andCardinality(featured));
+        featuredCounts.put("false", featuredBase.andCardinality(notFeatured));
+
+        CompressedBitmap discountBase = base(clauses, any, matched, Dimension.DISCOUNT);
+        Map<String, Integer> discountBands = new LinkedHashMap<>();
+        for (int b = 0; b < DISCOUNT_BOUNDS.length; b++) {
+            int low = (int) DISCOUNT_BOUNDS[b];
+            int high = b + 1 < DISCOUNT_BOUNDS.length ? (int) DISCOUNT_BOUNDS[b + 1] - 1 : 100;
+            discountBands.put(low + "-" + high, discountBase.andCardinality(discount.bucket(b)));
+        }
+
+        return new DealFacets(deals, categories, stores, currencies, featuredCounts, discountBands);
+    }
+
+    private Map<Dimension, CompressedBitmap> clauses(DealQuery query) {
+        if (query.getMinPrice() != null && query.getMaxPrice() != null
+                && query.getMinPrice().compareTo(query.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("最低价格不能高于最高价格");
+        }
+        if (query.getMinDiscount() != null && (query.getMinDiscount() < 0 || query.getMinDiscount() > 100)) {
+            throw new IllegalArgumentException("最低折扣必须在0到100之间");
+        }
+
+        Map<Dimension, CompressedBitmap> clauses = new EnumMap<>(Dimension.class);
+        if (isPresent(query.getCategoryIds())) {
+            clauses.put(Dimension.CATEGORY, union(byCategory, query.getCategoryIds(), Function.identity()));
+        }
+        if (isPresent(query.getStoreIds())) {
+            clauses.put(Dimension.STORE, union(byStore, query.getStoreIds(), Function.identity()));
+        }
+        if (isPresent(query.getCurrencies())) {
+            clauses.put(Dimension.CURRENCY,
+                    union(byCurrency, query.getCurrencies(), DealQueryIndex::normalizeCurrency));
+        }
+        if (query.getFeatured() != null) {
+            clauses.put(Dimension.FEATURED, query.getFeatured() ? featured : notFeatured);
+        }
+        if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+            clauses.put(Dimension.PRICE, price.range(toDouble(query.getMinPrice(), Double.NEGATIVE_INFINITY),
+                    toDouble(query.getMaxPrice(), Double.POSITIVE_INFINITY)));
+        }
+        if (query.getMinDiscount() != null) {
+            clauses.put(Dimension.DISCOUNT, discount.range(query.getMinDiscount(), Double.POSITIVE_INFINITY));
+        }
+        return clauses;
+    }
+
+    /**
+     * 组合各维度条件，excluded 非空时跳过该维度。"全部满足"时按基数从小到大求交，尽早收缩结果。
+     */
+    private CompressedBitmap combine(Map<Dimension, CompressedBitmap> clauses, boolean any, Dimension excluded) {
+        List<CompressedBitmap> parts = new ArrayList<>(clauses.size());
+        clauses.forEach((dimension, bitmap) -> {
+            if (dimension != excluded) {
+                parts.add(bitmap);
+            }
+        });
+        if (parts.isEmpty()) {
+            return all;
+        }
+        if (any) {
+            return CompressedBitmap.or(parts);
+        }
+        parts.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap result = parts.get(0);
+        for (int i = 1; i < parts.size() && !result.isEmpty(); i++) {
+            result = result.and(parts.get(i));
+        }
+        return result;
+    }
+
+    private CompressedBitmap base(Map<Dimension, CompressedBitmap> clauses, boolean any,
+                                  CompressedBitmap matched, Dimension dimension) {
+        if (any || !clauses.containsKey(dimension)) {
+            return matched;
+        }
+        return combine(clauses, false, dimension);
+    }
+
+    private static <K> Map<K, Integer> count(Map<K, CompressedBitmap> index, CompressedBitmap base) {
+        Map<K, Integer> counts = new HashMap<>(index.size() * 2);
+        index.forEach((key, bitmap) -> {
+            int count = base.andCardinality(bitmap);
+            if (count > 0) {
+                counts.put(key, count);
+            }
+        });
+        return counts;
+    }
+
+    public Page<DealCard> page(CompressedBitmap matched, Order order, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size);
+        int[] ordinals = sorted(matched, order);
+        long offset = pageable.getOffset();
+        if (offset >= ordinals.length) {
+            return new PageImpl<>(Collections.emptyList(), pageable, ordinals.length);
+        }
+        int from = (int) offset;
+        int to = Math.min(from + size, ordinals.length);
+        List<DealCard> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            content.add(snapshot.card(deals[ordinals[i]].getId()));
+        }
+        return new PageImpl<>(content, pageable, ordinals.length);
+    }
+
+    /**
+     * 序号本身就是最新排序；其他排序先映射为名次排序后再映射回序号。
+     */
+    private int[] sorted(CompressedBitmap matched, Order order) {
+        int[] ordinals = matched.toArray();
+        int[] rank = switch (order) {
+            case POPULARITY -> popularityRank;
+            case PRICE -> priceRank;
+            default -> null;
+        };
+        if (rank == null) {
+            return ordinals;
+        }
+        int[] byRank = order == Order.POPULARITY ? popularityOrder : priceOrder;
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = rank[ordinals[i]];
+        }
+        Arrays.sort(ordinals);
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = byRank[ordinals[i]];
+        }
+        return ordinals;
+    }
+
+    private int[] order(Comparator<Deal> comparator) {
+        Integer[] boxed = new Integer[deals.length];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> comparator.compare(deals[a], deals[b]));
+        int[] result = new int[boxed.length];
+        for (int i = 0; i < boxed.length; i++) {
+            result[i] = boxed[i];
+        }
+        return result;
+    }
+
+    private static int[] inverse(int[] order) {
+        int[] inverse = new int[order.length];
+        for (int rank = 0; rank < order.length; rank++) {
+            inverse[order[rank]] = rank;
+        }
+        return inverse;
+    }
+
+    private static <K, V> CompressedBitmap union(Map<K, CompressedBitmap> index, List<V> values,
+                                                 Function<V, K> key) {
+        List<CompressedBitmap> matched = new ArrayList<>(values.size());
+        for (V value : values) {
+            CompressedBitmap bitmap = index.get(key.apply(value));
+            if (bitmap != null) {
+                matched.add(bitmap);
+            }
+        }
+        return CompressedBitmap.or(matched);
+    }
+
+    private static <K> Map<K, CompressedBitmap> build(Map<K, CompressedBitmap.Builder> builders) {
+        Map<K, CompressedBitmap> result = new HashMap<>(builders.size() * 2);
+        builders.forEach((key, builder) -> result.put(key, builder.build()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static boolean isPresent(List<?> values) {
+        return values != null && !values.isEmpty();
+    }
+
+    private static boolean isAny(String match) {
+        if (match == null || match.isBlank() || "all".equalsIgnoreCase(match)) {
+            return false;
+        }
+        if ("any".equalsIgnoreCase(match)) {
+            return true;
+        }
+        throw new IllegalArgumentException("不支持的组合方式: " + match);
+    }
+
+    private static String normalizeCurrency(String currency) {
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static double toDouble(BigDecimal value, double fallback) {
+        return value != null ? value.doubleValue() : fallback;
+    }
+
+    /**
+     * 数值区间索引：每个区间一个位图。查询时完全落在范围内的区间直接合并，
+     * 只有两端跨界的区间按原值逐个过滤。
+     */
+    private static final class RangeIndex {
+
+        private final double[] bounds;
+        private final CompressedBitmap[] buckets;
+        private final double[] values;
+
+        RangeIndex(double[] bounds, double[] values) {
+            this.bounds = bounds;
+            this.values = values;
+            CompressedBitmap.Builder[] builders = new CompressedBitmap.Builder[bounds.length];
+            for (int b = 0; b < builders.length; b++) {
+                builders[b] = CompressedBitmap.builder();
+            }
+            for (int ordinal = 0; ordinal < values.length; ordinal++) {
+                if (!Double.isNaN(values[ordinal])) {
+                    builders[bucketOf(values[ordinal])].add(ordinal);
+                }
+            }
+            this.buckets = new CompressedBitmap[bounds.length];
+            for (int b = 0; b < builders.length; b++) {
+                buckets[b] = builders[b].build();
+            }
+        }
+
+        CompressedBitmap range(double min, double max) {
+            List<CompressedBitmap> parts = new ArrayList<>();
+            for (int b = 0; b < buckets.length; b++) {
+                double low = b == 0 ? Double.NEGATIVE_INFINITY : bounds[b];
+                double high = b + 1 < bounds.length ? bounds[b + 1] : Double.POSITIVE_INFINITY;
+                if (high <= min || low > max || buckets[b].isEmpty()) {
+                    continue;
+                }
+                if (low >= min && (high <= max || max == Double.POSITIVE_INFINITY)) {
+                    parts.add(buckets[b]);
+                } else {
+                    CompressedBitmap.Builder partial = CompressedBitmap.builder();
+                    buckets[b].forEach(ordinal -> {
+                        if (values[ordinal] >= min && values[ordinal] <= max) {
+                            partial.add(ordinal);
+                        }
+                    });
+                    parts.add(partial.build());
+                }
+            }
+            return CompressedBitmap.or(parts);
+        }
+
+        CompressedBitmap bucket(int b) {
+            return buckets[b];
+        }
+
+        private int bucketOf(double value) {
+            int b = bounds.length - 1;
+            while (b > 0 && value < bounds[b]) {
+                b--;
+            }
+            return b;
+        }
+    }
+}
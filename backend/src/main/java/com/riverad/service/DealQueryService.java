@@ -0,0 +1,43 @@
+package com.riverad.service;
+
+import com.riverad.dto.DealCard;
+import com.riverad.dto.DealFacets;
+import com.riverad.dto.DealQuery;
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.utils.CompressedBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+
+/**
+ * 多条件优惠查询。位图索引随快照替换整体重建，查询只读取 volatile 引用。
+ */
+@Service
+public class DealQueryService {
+
+    private static final Logger log = LoggerFactory.getLogger(DealQueryService.class);
+
+    private volatile DealQueryIndex index = DealQueryIndex.of(DealSnapshot.empty());
+
+    public Page<DealCard> query(DealQuery query, String sortBy, int page, int size) {
+        DealQueryIndex.Order order = DealQueryIndex.Order.fromParam(sortBy);
+        DealQueryIndex current = index;
+        CompressedBitmap matched = current.match(query);
+        return current.page(matched, order, page, size);
+    }
+
+    public DealFacets facets(DealQuery query, String sortBy, int page, int size) {
+        DealQueryIndex.Order order = DealQueryIndex.Order.fromParam(sortBy);
+        return index.facets(query, order, page, size);
+    }
+
+    @EventListener
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        long started = System.nanoTime();
+        index = DealQueryIndex.of(event.getSnapshot());
+        log.debug("Deal query index rebuilt for {} deals in {} ms",
+                index.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
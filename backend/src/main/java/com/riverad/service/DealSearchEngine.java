@@ -0,0 +1,22 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * 关键词搜索引擎，由 app.deals.search.engine 选择实现：memory（内存倒排索引，默认）、
+ * postgres（全文检索 + 三元组相似度）或 like（LIKE 模糊匹配，兼容 H2）。
+ */
+public interface DealSearchEngine {
+
+    String getName();
+
+    Page<DealCard> search(String keyword, Pageable pageable);
+
+    Slice<DealCard> searchSlice(String keyword, Pageable pageable);
+
+    CursorPage<DealCard> searchAfter(String keyword, String cursor, int size);
+}
@@ -0,0 +1,335 @@
+package com.riverad.service;
+
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Deal;
+import com.riverad.utils.BilingualTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 活跃优惠的中英文倒排索引，按 BM25 打分。标题、简短描述、详细描述按不同权重计入词频。
+ * 每个文档分配递增的内部序号，倒排表是按序号追加的有序数组；快照替换时只对新增、
+ * 文本变化和已下线的优惠做增量更新，旧序号打删除标记，失效过多时整体压缩。
+ * 查询要求所有词都命中，从最短的倒排表出发逐表跳跃求交。
+ */
+@Service
+@ConditionalOnProperty(name = "app.deals.search.engine", havingValue = "memory", matchIfMissing = true)
+public class DealSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DealSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float SHORT_DESCRIPTION_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    public record Hit(Long dealId, double score) {}
+
+    public record Result(List<Hit> hits, int total) {}
+
+    private record Document(int fingerprint, String[] terms, float[] frequencies, float length) {}
+
+    private static final Comparator<Hit> RANKING = Comparator
+            .comparingDouble(Hit::score).reversed()
+            .thenComparing(Hit::dealId, Comparator.reverseOrder());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 只由快照重建线程修改，用于比对文本是否变化
+    private final Map<Long, Document> documents = new HashMap<>();
+    private Segment segment = new Segment(1024);
+
+    /**
+     * 查询相关度排序的结果：跳过 skip 条后最多返回 limit 条，after 非空时只返回排在游标之后的结果。
+     * total 为全部命中数。skip 和 limit 来自请求参数，保留的候选数不超过最短倒排表的条目数，页码过大时只计数。
+     */
+    public Result search(String keyword, DealCursor after, long skip, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(BilingualTokenizer.tokenize(keyword)));
+        if (terms.isEmpty() || limit <= 0) {
+            return new Result(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            return segment.search(terms, after, skip, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 快照只在重建线程中串行发布，这里先在锁外完成分词，再在写锁内更新变化的文档。
+     * 先于搜索结果缓存的失效执行，保证失效后的查询读到的是新索引。
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        List<Deal> deals = event.getSnapshot().deals();
+        Set<Long> live = new HashSet<>(deals.size() * 2);
+        Map<Long, Document> changed = new LinkedHashMap<>();
+        for (Deal deal : deals) {
+            live.add(deal.getId());
+            int fingerprint = fingerprint(deal);
+            Document existing = documents.get(deal.getId());
+            if (existing == null || existing.fingerprint() != fingerprint) {
+                changed.put(deal.getId(), analyze(deal, fingerprint));
+            }
+        }
+        List<Long> removed = new ArrayList<>();
+        for (Long dealId : documents.keySet()) {
+            if (!live.contains(dealId)) {
+                removed.add(dealId);
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Document> previous = new HashMap<>();
+        for (Long dealId : removed) {
+            previous.put(dealId, documents.remove(dealId));
+        }
+        changed.forEach((dealId, document) -> {
+            Document old = documents.put(dealId, document);
+            if (old != null) {
+                previous.put(dealId, old);
+            }
+        });
+        if (segment.needsCompaction(removed.size() + changed.size())) {
+            Segment compacted = new Segment(documents.size() + 1024);
+            documents.forEach(compacted::add);
+            lock.writeLock().lock();
+            try {
+                segment = compacted;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else {
+            lock.writeLock().lock();
+            try {
+                previous.forEach(segment::remove);
+                changed.forEach(segment::add);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.debug("Deal search index updated: {} indexed, {} removed, {} total",
+                changed.size(), removed.size(), documents.size());
+    }
+
+    private static Document analyze(Deal deal, int fingerprint) {
+        Map<String, Float> terms = new HashMap<>();
+        float length = 0;
+        length += addTerms(terms, deal.getTitleEn(), TITLE_WEIGHT);
+        length += addTerms(terms, deal.getTitleZh(), TITLE_WEIGHT);
+        length += addTerms(terms, deal.getShortDescriptionEn(), SHORT_DESCRIPTION_WEIGHT);
+        length += addTerms(terms, deal.getShortDescriptionZh(), SHORT_DESCRIPTION_WEIGHT);
+        length += addTerms(terms, deal.getDescriptionEn(), DESCRIPTION_WEIGHT);
+        length += addTerms(terms, deal.getDescriptionZh(), DESCRIPTION_WEIGHT);
+
+        String[] names = new String[terms.size()];
+        float[] frequencies = new float[terms.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> entry : terms.entrySet()) {
+            names[i] = entry.getKey();
+            frequencies[i] = entry.getValue();
+            i++;
+        }
+        return new Document(fingerprint, names, frequencies, Math.max(length, 1.0f));
+    }
+
+    private static float addTerms(Map<String, Float> terms, String text, float weight) {
+        List<String> tokens = BilingualTokenizer.tokenize(text);
+        for (String token : tokens) {
+            terms.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private static int fingerprint(Deal deal) {
+        return Objects.hash(deal.getTitleEn(), deal.getTitleZh(), deal.getShortDescriptionEn(),
+                deal.getShortDescriptionZh(), deal.getDescriptionEn(), deal.getDescriptionZh());
+    }
+
+    /**
+     * 按内部序号升序追加的倒排表，live 为未删除的条目数，用作文档频率。
+     */
+    private static final class PostingList {
+
+        private int[] docs = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+        private int live;
+
+        void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        /**
+         * 从 from 开始倍增再二分，返回第一个不小于 doc 的位置。
+         */
+        int advance(int from, int doc) {
+            int step = 1;
+            int high = from;
+            while (high < size && docs[high] < doc) {
+                from = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            int pos = Arrays.binarySearch(docs, from, high, doc);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Map<String, PostingList> postings = new HashMap<>();
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final BitSet alive = new BitSet();
+        private long[] dealIds;
+        private float[] lengths;
+        private int nextOrdinal;
+        private int liveCount;
+        private double totalLength;
+
+        Segment(int capacity) {
+            this.dealIds = new long[capacity];
+            this.lengths = new float[capacity];
+        }
+
+        boolean needsCompaction(int incoming) {
+            return nextOrdinal + incoming > 2 * (liveCount + incoming) + 1024;
+        }
+
+        void add(Long dealId, Document document) {
+            int ordinal = nextOrdinal++;
+            if (ordinal == dealIds.length) {
+                dealIds = Arrays.copyOf(dealIds, ordinal * 2);
+                lengths = Arrays.copyOf(lengths, ordinal * 2);
+            }
+            dealIds[ordinal] = dealId;
+            lengths[ordinal] = document.length();
+            alive.set(ordinal);
+            ordinals.put(dealId, ordinal);
+            liveCount++;
+            totalLength += document.length();
+            for (int t = 0; t < document.terms().length; t++) {
+                postings.computeIfAbsent(document.terms()[t], k -> new PostingList())
+                        .add(ordinal, document.frequencies()[t]);
+            }
+        }
+
+        void remove(Long dealId, Document document) {
+            Integer ordinal = ordinals.remove(dealId);
+            if (ordinal == null) {
+                return;
+            }
+            alive.clear(ordinal);
+            liveCount--;
+            totalLength -= lengths[ordinal];
+            for (String term : document.terms()) {
+                PostingList list = postings.get(term);
+                if (list != null && --list.live == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        Result search(List<String> terms, DealCursor after, long skip, int limit) {
+            PostingList[] lists = new PostingList[terms.size()];
+            for (int t = 0; t < lists.length; t++) {
+                lists[t] = postings.get(terms.get(t));
+                if (lists[t] == null) {
+                    return new Result(Collections.emptyList(), 0);
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.live));
+            double[] idf = new double[lists.length];
+            for (int t = 0; t < lists.length; t++) {
+                int df = lists[t].live;
+                idf[t] = Math.log(1.0 + (liveCount - df + 0.5) / (df + 0.5));
+            }
+            double averageLength = liveCount > 0 ? totalLength / liveCount : 1.0;
+
+            PostingList first = lists[0];
+            // 命中数不会超过最短的倒排表，按它限定堆的大小
+            int keep = (int) Math.min(skip + limit, first.live);
+            if (skip >= keep) {
+                keep = 0;
+            }
+            PriorityQueue<Hit> top = new PriorityQueue<>(keep + 1, RANKING.reversed());
+            int[] positions = new int[lists.length];
+            int total = 0;
+            candidates:
+            for (int i = 0; i < first.size; i++) {
+                int doc = first.docs[i];
+                if (!alive.get(doc)) {
+                    continue;
+                }
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                double score = bm25(idf[0], first.frequencies[i], norm);
+                for (int t = 1; t < lists.length; t++) {
+                    PostingList list = lists[t];
+                    int pos = list.advance(positions[t], doc);
+                    positions[t] = pos;
+                    if (pos == list.size) {
+                        break candidates;
+                    }
+                    if (list.docs[pos] != doc) {
+                        continue candidates;
+                    }
+                    score += bm25(idf[t], list.frequencies[pos], norm);
+                }
+                total++;
+                long dealId = dealIds[doc];
+                if (keep == 0 || after != null && !isAfter(score, dealId, after)) {
+                    continue;
+                }
+                if (top.size() < keep || RANKING.compare(new Hit(dealId, score), top.peek()) < 0) {
+                    top.add(new Hit(dealId, score));
+                    if (top.size() > keep) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANKING);
+            return new Result(skip < hits.size() ? hits.subList((int) skip, hits.size()) : Collections.emptyList(), total);
+        }
+
+        private static double bm25(double idf, float frequency, double norm) {
+            return idf * frequency * (K1 + 1) / (frequency + norm);
+        }
+
+        private static boolean isAfter(double score, long dealId, DealCursor cursor) {
+            int cmp = Double.compare(score, cursor.getScore());
+            return cmp < 0 || (cmp == 0 && dealId < cursor.getId());
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.riverad.service;
 
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import com.riverad.dto.DealCounts;
+import com.riverad.dto.DealFacets;
+import com.riverad.dto.DealQuery;
+import com.riverad.dto.DealSuggestion;
 import com.riverad.model.Deal;
 import com.riverad.repository.DealRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 @Transactional
@@ -19,53 +26,242 @@ public class DealService {
 
     @Autowired
     private DealRepository dealRepository;
+    
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+    
+    @Autowired
+    private DealCounterService dealCounterService;
+    
+    @Autowired
+    private PopularDealsTracker popularDealsTracker;
+    
+    @Autowired
+    private TrendingScoreService trendingScoreService;
+    
+    @Autowired
+    private DealQueryService dealQueryService;
+    
+    @Autowired
+    private DealSuggestService dealSuggestService;
+    
+    @Autowired
+    private List<DealSearchEngine> searchEngines;
+    
+    @Value("${app.deals.search.engine:memory}")
+    private String searchEngineName;
+    
+    @Autowired
+    private FuzzyTermIndex fuzzyTermIndex;
+    
+    @Value("${app.deals.search.fuzzy.enabled:true}")
+    private boolean fuzzyEnabled;
+    
+    @Value("${app.deals.search.fuzzy.min-hits:5}")
+    private int fuzzyMinHits;
+    
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    @Value("${app.deals.search.cache.enabled:true}")
+    private boolean searchCacheEnabled;
+    
+    @Value("${app.deals.batch.max-ids:200}")
+    private int maxBatchIds;
+    
+    private volatile DealSearchEngine searchEngine;
 
-    @Transactional(readOnly = true)
-    public Page<Deal> getActiveDeals(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return dealRepository.findActiveDeals(LocalDateTime.now(), pageable);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<DealCard> getActiveDeals(String sortBy, int page, int size) {
+        DealSnapshot snapshot = dealSnapshotService.current();
+        return switch (DealCursor.Sort.fromParam(sortBy)) {
+            case POPULARITY -> snapshot.mostClicked(page, size);
+            case TRENDING -> trendingScoreService.page(snapshot, page, size);
+            default -> snapshot.newest(page, size);
+        };
     }
 
-    @Transactional(readOnly = true)
-    public Page<Deal> searchDeals(String keyword, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return dealRepository.searchActiveDeals(keyword, LocalDateTime.now(), pageable);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CursorPage<DealCard> getActiveDealsAfter(String cursor, String sortBy, int size) {
+        DealCursor.Sort sort = DealCursor.Sort.fromParam(sortBy);
+        DealCursor after = DealCursor.decode(cursor, sort);
+        DealSnapshot snapshot = dealSnapshotService.current();
+        return switch (sort) {
+            case POPULARITY -> snapshot.mostClickedAfter(after, size);
+            case TRENDING -> trendingScoreService.seek(snapshot, after, size);
+            default -> snapshot.newestAfter(after, size);
+        };
     }
 
-    @Transactional(readOnly = true)
-    public Page<Deal> getDealsByCategory(Long categoryId, int page, int size) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<DealCard> queryDeals(DealQuery query, String sortBy, int page, int size) {
+        dealSnapshotService.current(); // 首次访问时触发快照加载，索引随重建事件更新
+        return dealQueryService.query(query, sortBy, page, size);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public DealFacets getDealFacets(DealQuery query, String sortBy, int page, int size) {
+        dealSnapshotService.current();
+        return dealQueryService.facets(query, sortBy, page, size);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<DealCard> searchDeals(String keyword, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return dealRepository.findActiveDealsByCategory(categoryId, LocalDateTime.now(), pageable);
+        return searchEngine().search(keyword, pageable);
     }
 
-    @Transactional(readOnly = true)
-    public Page<Deal> getDealsByStore(Long storeId, int page, int size) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Slice<DealCard> searchDealsSlice(String keyword, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return dealRepository.findActiveDealsByStore(storeId, LocalDateTime.now(), pageable);
+        return searchEngine().searchSlice(keyword, pageable);
     }
 
-    @Transactional(readOnly = true)
-    public List<Deal> getPopularDeals(int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return dealRepository.findPopularDeals(LocalDateTime.now(), pageable);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CursorPage<DealCard> searchDealsAfter(String keyword, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("每页数量必须大于0");
+        }
+        return searchEngine().searchAfter(keyword, cursor, size);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<DealSuggestion> suggest(String prefix, int limit) {
+        return dealSuggestService.suggest(prefix, limit);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<DealCard> getDealsByCategory(Long categoryId, int page, int size) {
+        return dealSnapshotService.current().newestByCategory(categoryId, page, size);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CursorPage<DealCard> getDealsByCategoryAfter(Long categoryId, String cursor, int size) {
+        DealCursor after = DealCursor.decode(cursor, DealCursor.Sort.NEWEST);
+        return dealSnapshotService.current().newestByCategoryAfter(categoryId, after, size);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<DealCard> getDealsByStore(Long storeId, int page, int size) {
+        return dealSnapshotService.current().newestByStore(storeId, page, size);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CursorPage<DealCard> getDealsByStoreAfter(Long storeId, String cursor, int size) {
+        DealCursor after = DealCursor.decode(cursor, DealCursor.Sort.NEWEST);
+        return dealSnapshotService.current().newestByStoreAfter(storeId, after, size);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<DealCard> getPopularDeals(int limit) {
+        DealSnapshot snapshot = dealSnapshotService.current();
+        if (limit > popularDealsTracker.getCapacity()) {
+            return snapshot.mostClicked(limit);
+        }
+        
+        List<DealCard> result = new ArrayList<>(limit);
+        for (PopularDealsTracker.Ranked ranked : popularDealsTracker.top(limit)) {
+            DealCard card = snapshot.card(ranked.dealId());
+            if (card != null) {
+                result.add(card.withClickCount((int) ranked.clicks()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 详情查询记一次浏览。只读事务中加载的实体不参与脏检查，计数合并上未写回的增量后返回。
+     */
     @Transactional(readOnly = true)
     public Optional<Deal> getDealById(Long id) {
-        return dealRepository.findById(id);
+        Optional<Deal> dealOpt = dealRepository.findById(id);
+        dealOpt.ifPresent(deal -> {
+            dealCounterService.recordView(id);
+            deal.setClickCount(merge(deal.getClickCount(), dealCounterService.pendingClicks(id)));
+            deal.setViewCount(merge(deal.getViewCount(), dealCounterService.pendingViews(id)));
+        });
+        return dealOpt;
     }
 
+    /**
+     * 批量获取优惠卡片：先从快照取，未命中的（如已下架）合并成一次 IN 查询，结果保持请求顺序。
+     */
+    @Transactional(readOnly = true)
+    public List<DealCard> getDealCardsByIds(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > maxBatchIds) {
+            throw new IllegalArgumentException("单次最多查询" + maxBatchIds + "个优惠");
+        }
+        
+        DealSnapshot snapshot = dealSnapshotService.current();
+        Map<Long, DealCard> found = new HashMap<>(uniqueIds.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            DealCard card = snapshot.card(id);
+            if (card != null) {
+                found.put(id, card.withClickCount(merge(card.clickCount(), dealCounterService.unsnapshottedClicks(id))));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (DealCard card : dealRepository.findCardsByIdIn(missing)) {
+                found.put(card.id(), card.withClickCount(merge(card.clickCount(), dealCounterService.pendingClicks(card.id()))));
+            }
+        }
+        
+        List<DealCard> result = new ArrayList<>(found.size());
+        for (Long id : uniqueIds) {
+            DealCard card = found.get(id);
+            if (card != null) {
+                result.add(card);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 只累加内存计数，由 {@link DealCounterService} 定时批量写回。
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void incrementClickCount(Long dealId) {
-        Optional<Deal> dealOpt = dealRepository.findById(dealId);
-        if (dealOpt.isPresent()) {
-            Deal deal = dealOpt.get();
-            deal.setClickCount(deal.getClickCount() + 1);
-            dealRepository.save(deal);
+        if (dealSnapshotService.current().get(dealId).isPresent() || dealRepository.existsById(dealId)) {
+            dealCounterService.recordClick(dealId);
+            popularDealsTracker.recordClick(dealId);
+            trendingScoreService.recordClick(dealId);
         }
     }
 
-    @Transactional(readOnly = true)
+    private static Integer merge(Integer persisted, long pending) {
+        long total = (persisted != null ? persisted : 0) + pending;
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    private DealSearchEngine searchEngine() {
+        DealSearchEngine engine = searchEngine;
+        if (engine == null) {
+            engine = searchEngines.stream()
+                    .filter(candidate -> candidate.getName().equalsIgnoreCase(searchEngineName))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("未知的搜索引擎: " + searchEngineName));
+            if (fuzzyEnabled) {
+                engine = new FuzzyDealSearchEngine(engine, fuzzyTermIndex, fuzzyMinHits);
+            }
+            if (searchCacheEnabled) {
+                engine = new CachingDealSearchEngine(engine, searchResultCache, fuzzyTermIndex);
+            }
+            searchEngine = engine;
+        }
+        return engine;
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public long getTotalActiveDeals() {
-        return dealRepository.countActiveDeals(LocalDateTime.now());
+        return dealSnapshotService.current().size();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public DealCounts getDealCounts() {
+        return dealSnapshotService.current().counts();
     }
 }
\ No newline at end of file
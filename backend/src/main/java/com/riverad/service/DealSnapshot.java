@@ -0,0 +1,230 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import com.riverad.dto.DealCounts;
+import com.riverad.model.Deal;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 活跃优惠的不可变快照。构建时按创建时间、点击数、售价预排序，
+ * 读请求直接在数组上分页，不访问数据库。
+ */
+public final class DealSnapshot {
+
+    private static final Deal[] EMPTY = new Deal[0];
+
+    private static final Comparator<Deal> NEWEST = Comparator
+            .comparing(Deal::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Deal::getId, Comparator.reverseOrder());
+
+    static final Comparator<Deal> MOST_CLICKED = Comparator
+            .comparing((Deal d) -> d.getClickCount() != null ? d.getClickCount() : 0, Comparator.reverseOrder())
+            .thenComparing(Deal::getId, Comparator.reverseOrder());
+
+    static final Comparator<Deal> CHEAPEST = Comparator
+            .comparing(Deal::getSalePrice, Comparator.nullsLast(Comparator.<BigDecimal>naturalOrder()))
+            .thenComparing(Deal::getId);
+
+    private final Map<Long, Deal> byId;
+    private final Map<Long, DealCard> cards;
+    private final Deal[] byNewest;
+    private final Deal[] byClickCount;
+    private final Deal[] bySalePrice;
+    private final Map<Long, Deal[]> byCategory;
+    private final Map<Long, Deal[]> byStore;
+    private final DealCounts counts;
+    private final LocalDateTime builtAt;
+
+    private DealSnapshot(Collection<Deal> deals, LocalDateTime asOf, LocalDateTime builtAt) {
+        Map<Long, Deal> ids = new HashMap<>(deals.size() * 2);
+        Map<Long, DealCard> cardsById = new HashMap<>(deals.size() * 2);
+        for (Deal deal : deals) {
+            if (!isLive(deal, asOf)) {
+                continue;
+            }
+            ids.put(deal.getId(), deal);
+            cardsById.put(deal.getId(), DealCard.from(deal));
+        }
+        this.byId = Collections.unmodifiableMap(ids);
+        this.cards = Collections.unmodifiableMap(cardsById);
+        this.byNewest = sorted(ids.values(), NEWEST);
+        this.byClickCount = sorted(ids.values(), MOST_CLICKED);
+        this.bySalePrice = sorted(ids.values(), CHEAPEST);
+
+        Map<Long, List<Deal>> categories = new HashMap<>();
+        Map<Long, List<Deal>> stores = new HashMap<>();
+        for (Deal deal : byNewest) {
+            if (deal.getCategory() != null) {
+                categories.computeIfAbsent(deal.getCategory().getId(), k -> new ArrayList<>()).add(deal);
+            }
+            if (deal.getStore() != null) {
+                stores.computeIfAbsent(deal.getStore().getId(), k -> new ArrayList<>()).add(deal);
+            }
+        }
+        this.byCategory = toArrays(categories);
+        this.byStore = toArrays(stores);
+        this.counts = new DealCounts(byNewest.length, lengths(byCategory), lengths(byStore), asOf);
+        this.builtAt = builtAt;
+    }
+
+    public static DealSnapshot of(Collection<Deal> deals, LocalDateTime builtAt) {
+        return new DealSnapshot(deals, builtAt, builtAt);
+    }
+
+    public static DealSnapshot empty() {
+        LocalDateTime now = LocalDateTime.now();
+        return new DealSnapshot(Collections.emptyList(), now, now);
+    }
+
+    /**
+     * 在内存中移除指定优惠（如到期下线）并生成新快照，无需重新查询数据库。
+     */
+    public DealSnapshot without(Collection<Long> removedIds, LocalDateTime now) {
+        List<Deal> remaining = new ArrayList<>(byNewest.length);
+        for (Deal deal : byNewest) {
+            if (!removedIds.contains(deal.getId())) {
+                remaining.add(deal);
+            }
+        }
+        return new DealSnapshot(remaining, now, builtAt);
+    }
+
+    public Page<DealCard> newest(int page, int size) {
+        return page(byNewest, page, size);
+    }
+
+    public Page<DealCard> newestByCategory(Long categoryId, int page, int size) {
+        return page(byCategory.getOrDefault(categoryId, EMPTY), page, size);
+    }
+
+    public Page<DealCard> newestByStore(Long storeId, int page, int size) {
+        return page(byStore.getOrDefault(storeId, EMPTY), page, size);
+    }
+
+    public Page<DealCard> mostClicked(int page, int size) {
+        return page(byClickCount, page, size);
+    }
+
+    public Page<DealCard> cheapest(int page, int size) {
+        return page(bySalePrice, page, size);
+    }
+
+    public CursorPage<DealCard> newestAfter(DealCursor cursor, int size) {
+        return seek(byNewest, NEWEST, cursor, DealCursor.Sort.NEWEST, size);
+    }
+
+    public CursorPage<DealCard> mostClickedAfter(DealCursor cursor, int size) {
+        return seek(byClickCount, MOST_CLICKED, cursor, DealCursor.Sort.POPULARITY, size);
+    }
+
+    public CursorPage<DealCard> newestByCategoryAfter(Long categoryId, DealCursor cursor, int size) {
+        return seek(byCategory.getOrDefault(categoryId, EMPTY), NEWEST, cursor, DealCursor.Sort.NEWEST, size);
+    }
+
+    public CursorPage<DealCard> newestByStoreAfter(Long storeId, DealCursor cursor, int size) {
+        return seek(byStore.getOrDefault(storeId, EMPTY), NEWEST, cursor, DealCursor.Sort.NEWEST, size);
+    }
+
+    public List<DealCard> mostClicked(int limit) {
+        return toCards(byClickCount, 0, Math.min(Math.max(limit, 0), byClickCount.length));
+    }
+
+    public List<Deal> deals() {
+        return Collections.unmodifiableList(Arrays.asList(byNewest));
+    }
+
+    public DealCard card(Long id) {
+        return cards.get(id);
+    }
+
+    public Optional<Deal> get(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public DealCounts counts() {
+        return counts;
+    }
+
+    public int size() {
+        return byNewest.length;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    private Page<DealCard> page(Deal[] deals, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size);
+        long offset = pageable.getOffset();
+        if (offset >= deals.length) {
+            return new PageImpl<>(Collections.emptyList(), pageable, deals.length);
+        }
+        int from = (int) offset;
+        int to = Math.min(from + size, deals.length);
+        return new PageImpl<>(toCards(deals, from, to), pageable, deals.length);
+    }
+
+    /**
+     * 键集分页：二分定位游标之后的第一条记录，与数组长度和页码无关。
+     */
+    private CursorPage<DealCard> seek(Deal[] deals, Comparator<Deal> order, DealCursor cursor,
+                                      DealCursor.Sort sort, int size) {
+        int from = 0;
+        if (cursor != null) {
+            int pos = Arrays.binarySearch(deals, cursor.probe(), order);
+            from = pos >= 0 ? pos + 1 : -pos - 1;
+        }
+        int to = Math.min(from + size, deals.length);
+        List<DealCard> content = toCards(deals, from, to);
+        String next = to < deals.length && !content.isEmpty()
+                ? DealCursor.after(content.get(content.size() - 1), sort).encode()
+                : null;
+        return new CursorPage<>(content, next, size);
+    }
+
+    /**
+     * 数据库中 is_active 由生命周期调度维护；尚未开始的优惠也标记为活跃，这里按开始时间过滤，
+     * 结束时间的判断用于兜底调度延迟。
+     */
+    private static boolean isLive(Deal deal, LocalDateTime now) {
+        boolean started = deal.getStartDate() == null || !deal.getStartDate().isAfter(now);
+        boolean ended = deal.getEndDate() != null && !deal.getEndDate().isAfter(now);
+        return started && !ended;
+    }
+
+    private List<DealCard> toCards(Deal[] deals, int from, int to) {
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<DealCard> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(cards.get(deals[i].getId()));
+        }
+        return result;
+    }
+
+    private static Deal[] sorted(Collection<Deal> deals, Comparator<Deal> order) {
+        Deal[] array = deals.toArray(EMPTY);
+        Arrays.sort(array, order);
+        return array;
+    }
+
+    private static Map<Long, Integer> lengths(Map<Long, Deal[]> groups) {
+        Map<Long, Integer> result = new HashMap<>(groups.size() * 2);
+        groups.forEach((key, deals) -> result.put(key, deals.length));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Map<Long, Deal[]> toArrays(Map<Long, List<Deal>> groups) {
+        Map<Long, Deal[]> result = new HashMap<>(groups.size() * 2);
+        groups.forEach((key, list) -> result.put(key, list.toArray(EMPTY)));
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,107 @@
+package com.riverad.service;
+
+import com.riverad.event.DealChangedEvent;
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Deal;
+import com.riverad.repository.DealRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 维护活跃优惠的写时复制快照。优惠变更只标记为脏，由定时任务合并重建，
+ * 读路径只读取 volatile 引用。重建和快照事件（索引、热度等监听方）只在启动预热和定时任务线程上串行执行，
+ * 请求线程从不触发重建；首次重建完成前读到的是空快照。
+ */
+@Service
+public class DealSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(DealSnapshotService.class);
+
+    @Autowired
+    private DealRepository dealRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private DealCounterService dealCounterService;
+
+    @Value("${app.deals.snapshot.max-age-ms:300000}")
+    private long maxAgeMs;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final Object rebuildLock = new Object();
+    private volatile DealSnapshot snapshot = DealSnapshot.empty();
+
+    public DealSnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * 由生命周期调度在优惠到期时调用，直接在内存中剔除，不重新加载。
+     */
+    public void evict(Collection<Long> dealIds) {
+        if (dealIds.isEmpty()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            DealSnapshot pruned = snapshot.without(dealIds, LocalDateTime.now());
+            snapshot = pruned;
+            eventPublisher.publishEvent(new DealSnapshotRebuiltEvent(pruned));
+        }
+    }
+
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    public DealSnapshot rebuild() {
+        synchronized (rebuildLock) {
+            dirty.set(false);
+            LocalDateTime now = LocalDateTime.now();
+            List<Deal> deals = dealCounterService.loadSnapshot(dealRepository::findActiveDealsForSnapshot);
+            DealSnapshot rebuilt = DealSnapshot.of(deals, now);
+            snapshot = rebuilt;
+            eventPublisher.publishEvent(new DealSnapshotRebuiltEvent(rebuilt));
+            log.debug("Deal snapshot rebuilt with {} active deals", rebuilt.size());
+            return rebuilt;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDealChanged(DealChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.deals.snapshot.refresh-interval-ms:1000}")
+    public void refreshIfNeeded() {
+        boolean tooOld = Duration.between(snapshot.getBuiltAt(), LocalDateTime.now()).toMillis() > maxAgeMs;
+        if (dirty.get() || tooOld) {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                dirty.set(true);
+                log.warn("Deal snapshot rebuild failed, keeping previous snapshot", e);
+            }
+        }
+    }
+}
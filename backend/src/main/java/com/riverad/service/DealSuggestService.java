@@ -0,0 +1,149 @@
+package com.riverad.service;
+
+import com.riverad.dto.DealSuggestion;
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Category;
+import com.riverad.model.Deal;
+import com.riverad.model.Store;
+import com.riverad.repository.CategoryRepository;
+import com.riverad.repository.StoreRepository;
+import com.riverad.utils.PrefixTopK;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 搜索联想：对优惠标题、商店名和分类名建前缀 Top-K 索引，按点击热度排序。
+ * 快照替换后只标记为脏，由后台定时任务重建，读请求只读取 volatile 引用。
+ */
+@Service
+public class DealSuggestService {
+
+    private static final Logger log = LoggerFactory.getLogger(DealSuggestService.class);
+
+    // 商店和分类本身也是常用入口，在其下优惠点击总数之上加一个基础权重
+    private static final long ENTITY_BOOST = 100;
+
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Value("${app.deals.suggest.max-results:20}")
+    private int maxResults;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile SuggestIndex index = new SuggestIndex(new PrefixTopK(new String[0], new long[0]),
+            new DealSuggestion[0]);
+
+    public List<DealSuggestion> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > maxResults) {
+            throw new IllegalArgumentException("联想数量必须在1到" + maxResults + "之间");
+        }
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        SuggestIndex current = index;
+        int[] matches = current.keys().top(key, limit);
+        List<DealSuggestion> result = new ArrayList<>(matches.length);
+        for (int match : matches) {
+            result.add(current.suggestions()[match]);
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.deals.suggest.refresh-interval-ms:5000}")
+    public void refreshIfNeeded() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            index = build(dealSnapshotService.current());
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            log.warn("Suggest index rebuild failed, keeping previous index", e);
+        }
+    }
+
+    private SuggestIndex build(DealSnapshot snapshot) {
+        Map<String, Candidate> candidates = new HashMap<>();
+        Map<Long, Long> storeClicks = new HashMap<>();
+        Map<Long, Long> categoryClicks = new HashMap<>();
+        for (Deal deal : snapshot.deals()) {
+            long clicks = deal.getClickCount() != null ? deal.getClickCount() : 0;
+            offer(candidates, deal.getTitleEn(), "deal", deal.getId(), clicks);
+            offer(candidates, deal.getTitleZh(), "deal", deal.getId(), clicks);
+            if (deal.getStore() != null) {
+                storeClicks.merge(deal.getStore().getId(), clicks, Long::sum);
+            }
+            if (deal.getCategory() != null) {
+                categoryClicks.merge(deal.getCategory().getId(), clicks, Long::sum);
+            }
+        }
+        for (Store store : storeRepository.findAllActiveStores()) {
+            long weight = storeClicks.getOrDefault(store.getId(), 0L) + ENTITY_BOOST;
+            offer(candidates, store.getName(), "store", store.getId(), weight);
+        }
+        for (Category category : categoryRepository.findAllActiveCategories()) {
+            long weight = categoryClicks.getOrDefault(category.getId(), 0L) + ENTITY_BOOST;
+            offer(candidates, category.getNameEn(), "category", category.getId(), weight);
+            offer(candidates, category.getNameZh(), "category", category.getId(), weight);
+        }
+
+        List<Map.Entry<String, Candidate>> entries = new ArrayList<>(candidates.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+        String[] keys = new String[entries.size()];
+        long[] weights = new long[entries.size()];
+        DealSuggestion[] suggestions = new DealSuggestion[entries.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Candidate candidate = entries.get(i).getValue();
+            keys[i] = entries.get(i).getKey();
+            weights[i] = candidate.weight;
+            suggestions[i] = new DealSuggestion(candidate.text, candidate.type, candidate.id);
+        }
+        log.debug("Suggest index rebuilt with {} entries", keys.length);
+        return new SuggestIndex(new PrefixTopK(keys, weights), suggestions);
+    }
+
+    /**
+     * 同一文本只保留权重最高的来源，避免联想列表出现重复项。
+     */
+    private static void offer(Map<String, Candidate> candidates, String text, String type, Long id, long weight) {
+        String key = normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        Candidate existing = candidates.get(key);
+        if (existing == null || existing.weight < weight) {
+            candidates.put(key, new Candidate(text.trim(), type, id, weight));
+        }
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private record Candidate(String text, String type, Long id, long weight) {}
+
+    private record SuggestIndex(PrefixTopK keys, DealSuggestion[] suggestions) {}
+}
@@ -0,0 +1,66 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * 拼写容错包装：精确搜索命中少于 minHits 条时，用纠错后的关键词重新搜索。
+ * 是否纠错只取决于原关键词的命中数，同一关键词的各页结果保持一致。
+ */
+public class FuzzyDealSearchEngine implements DealSearchEngine {
+
+    private final DealSearchEngine delegate;
+    private final FuzzyTermIndex fuzzyTermIndex;
+    private final int minHits;
+
+    public FuzzyDealSearchEngine(DealSearchEngine delegate, FuzzyTermIndex fuzzyTermIndex, int minHits) {
+        this.delegate = delegate;
+        this.fuzzyTermIndex = fuzzyTermIndex;
+        this.minHits = minHits;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Page<DealCard> search(String keyword, Pageable pageable) {
+        Page<DealCard> exact = delegate.search(keyword, pageable);
+        if (exact.getTotalElements() >= minHits) {
+            return exact;
+        }
+        String corrected = fuzzyTermIndex.correct(keyword);
+        if (corrected == null) {
+            return exact;
+        }
+        Page<DealCard> fuzzy = delegate.search(corrected, pageable);
+        return fuzzy.getTotalElements() > exact.getTotalElements() ? fuzzy : exact;
+    }
+
+    @Override
+    public Slice<DealCard> searchSlice(String keyword, Pageable pageable) {
+        return delegate.searchSlice(effectiveKeyword(keyword), pageable);
+    }
+
+    @Override
+    public CursorPage<DealCard> searchAfter(String keyword, String cursor, int size) {
+        return delegate.searchAfter(effectiveKeyword(keyword), cursor, size);
+    }
+
+    /**
+     * 不带总数的分页先用 minHits 条的首页探测原关键词是否命中足够。
+     */
+    private String effectiveKeyword(String keyword) {
+        String corrected = fuzzyTermIndex.correct(keyword);
+        if (corrected == null) {
+            return keyword;
+        }
+        Slice<DealCard> probe = delegate.searchSlice(keyword, PageRequest.of(0, minHits));
+        return probe.getNumberOfElements() < minHits ? corrected : keyword;
+    }
+}
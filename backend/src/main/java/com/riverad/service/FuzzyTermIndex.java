@@ -0,0 +1,221 @@
+package com.riverad.service;
+
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Deal;
+import com.riverad.utils.BilingualTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 拼写纠错词典：收集优惠标题和商店名中的拉丁字母词，按首尾补位的字符二元组建倒排。
+ * 纠错时先用二元组重叠数筛出候选词，再以有界编辑距离（含相邻换位）校验，不扫描全部词。
+ * 中文按二元组检索，本身对错别字较宽容，不做纠错。
+ */
+@Service
+public class FuzzyTermIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FuzzyTermIndex.class);
+
+    private static final int MIN_TERM_LENGTH = 3;
+
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile Dictionary dictionary = Dictionary.build(Collections.emptyMap());
+
+    /**
+     * 把关键词中不在词典里的英文词替换为最接近的词，其余字符原样保留；无可纠正时返回 null。
+     */
+    public String correct(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return null;
+        }
+        Dictionary current = dictionary;
+        StringBuilder corrected = new StringBuilder(keyword.length());
+        boolean changed = false;
+        int i = 0;
+        while (i < keyword.length()) {
+            int codePoint = keyword.codePointAt(i);
+            if (!isLatinWordChar(codePoint)) {
+                corrected.appendCodePoint(codePoint);
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            while (i < keyword.length() && isLatinWordChar(keyword.codePointAt(i))) {
+                i += Character.charCount(keyword.codePointAt(i));
+            }
+            String word = keyword.substring(start, i);
+            String replacement = current.closest(word.toLowerCase(Locale.ROOT));
+            if (replacement != null) {
+                corrected.append(replacement);
+                changed = true;
+            } else {
+                corrected.append(word);
+            }
+        }
+        return changed ? corrected.toString() : null;
+    }
+
+    @EventListener
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.deals.search.fuzzy.refresh-interval-ms:10000}")
+    public void refreshIfNeeded() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (Deal deal : dealSnapshotService.current().deals()) {
+            collect(frequencies, deal.getTitleEn());
+            if (deal.getStore() != null) {
+                collect(frequencies, deal.getStore().getName());
+            }
+        }
+        dictionary = Dictionary.build(frequencies);
+        log.debug("Fuzzy term dictionary rebuilt with {} terms", frequencies.size());
+    }
+
+    private static void collect(Map<String, Integer> frequencies, String text) {
+        for (String token : BilingualTokenizer.tokenize(text)) {
+            if (token.length() >= MIN_TERM_LENGTH && isLatinWord(token)) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+    }
+
+    private static boolean isLatinWord(String token) {
+        return token.codePoints().allMatch(FuzzyTermIndex::isLatinWordChar)
+                && token.chars().anyMatch(Character::isLetter);
+    }
+
+    private static boolean isLatinWordChar(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) && !BilingualTokenizer.isCjk(codePoint);
+    }
+
+    private static final class Dictionary {
+
+        private final String[] terms;
+        private final int[] frequencies;
+        private final Set<String> known;
+        private final Map<String, int[]> grams;
+
+        private Dictionary(String[] terms, int[] frequencies, Map<String, int[]> grams) {
+            this.terms = terms;
+            this.frequencies = frequencies;
+            this.known = new HashSet<>(Arrays.asList(terms));
+            this.grams = grams;
+        }
+
+        static Dictionary build(Map<String, Integer> counts) {
+            String[] terms = counts.keySet().toArray(new String[0]);
+            int[] frequencies = new int[terms.length];
+            Map<String, List<Integer>> postings = new HashMap<>();
+            for (int t = 0; t < terms.length; t++) {
+                frequencies[t] = counts.get(terms[t]);
+                for (String gram : new LinkedHashSet<>(bigrams(terms[t]))) {
+                    postings.computeIfAbsent(gram, k -> new ArrayList<>()).add(t);
+                }
+            }
+            Map<String, int[]> grams = new HashMap<>(postings.size() * 2);
+            postings.forEach((gram, ids) -> grams.put(gram, ids.stream().mapToInt(Integer::intValue).toArray()));
+            return new Dictionary(terms, frequencies, grams);
+        }
+
+        /**
+         * 返回编辑距离在允许范围内、距离最小且出现次数最多的词；词本身已存在或过短时返回 null。
+         */
+        String closest(String word) {
+            if (word.length() < MIN_TERM_LENGTH || known.contains(word)) {
+                return null;
+            }
+            int maxDistance = word.length() <= 4 ? 1 : 2;
+            List<String> wordGrams = new ArrayList<>(new LinkedHashSet<>(bigrams(word)));
+            // 每处编辑（含相邻换位）最多破坏3个二元组
+            int minShared = Math.max(1, wordGrams.size() - 3 * maxDistance);
+
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String gram : wordGrams) {
+                int[] ids = grams.get(gram);
+                if (ids != null) {
+                    for (int id : ids) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+
+            String best = null;
+            int bestDistance = maxDistance + 1;
+            int bestFrequency = -1;
+            for (Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+                if (candidate.getValue() < minShared) {
+                    continue;
+                }
+                String term = terms[candidate.getKey()];
+                if (Math.abs(term.length() - word.length()) > maxDistance) {
+                    continue;
+                }
+                int distance = distance(word, term, maxDistance);
+                int frequency = frequencies[candidate.getKey()];
+                if (distance < bestDistance || (distance == bestDistance && frequency > bestFrequency)) {
+                    best = term;
+                    bestDistance = distance;
+                    bestFrequency = frequency;
+                }
+            }
+            return bestDistance <= maxDistance ? best : null;
+        }
+
+        private static List<String> bigrams(String word) {
+            String padded = "$" + word + "$";
+            List<String> result = new ArrayList<>(padded.length());
+            for (int i = 0; i + 2 <= padded.length(); i++) {
+                result.add(padded.substring(i, i + 2));
+            }
+            return result;
+        }
+
+        /**
+         * 有界的编辑距离（插入、删除、替换、相邻换位），整行都超过上限时提前返回 limit + 1。
+         */
+        private static int distance(String a, String b, int limit) {
+            int[] previous2 = new int[b.length() + 1];
+            int[] previous = new int[b.length() + 1];
+            int[] current = new int[b.length() + 1];
+            for (int j = 0; j <= b.length(); j++) {
+                previous[j] = j;
+            }
+            for (int i = 1; i <= a.length(); i++) {
+                current[0] = i;
+                int rowMin = current[0];
+                for (int j = 1; j <= b.length(); j++) {
+                    int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                    int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                    if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                        value = Math.min(value, previous2[j - 2] + 1);
+                    }
+                    current[j] = value;
+                    rowMin = Math.min(rowMin, value);
+                }
+                if (rowMin > limit) {
+                    return limit + 1;
+                }
+                int[] recycled = previous2;
+                previous2 = previous;
+                previous = current;
+                current = recycled;
+            }
+            return previous[b.length()];
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import com.riverad.repository.DealRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 标题 LIKE 模糊匹配，按创建时间倒序。任何数据库都可用，作为其他引擎不可用时的兜底。
+ */
+@Component
+public class LikeDealSearchEngine implements DealSearchEngine {
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Override
+    public String getName() {
+        return "like";
+    }
+
+    @Override
+    public Page<DealCard> search(String keyword, Pageable pageable) {
+        return dealRepository.searchActiveDeals(keyword, LocalDateTime.now(), pageable);
+    }
+
+    @Override
+    public Slice<DealCard> searchSlice(String keyword, Pageable pageable) {
+        return dealRepository.searchActiveDealsSlice(keyword, LocalDateTime.now(), pageable);
+    }
+
+    @Override
+    public CursorPage<DealCard> searchAfter(String keyword, String cursor, int size) {
+        DealCursor after = DealCursor.decode(cursor, DealCursor.Sort.NEWEST);
+        Pageable limit = PageRequest.of(0, size + 1);
+        LocalDateTime now = LocalDateTime.now();
+        List<DealCard> rows = after == null
+                ? dealRepository.searchActiveDealsFirst(keyword, now, limit)
+                : dealRepository.searchActiveDealsAfter(keyword, now, after.getCreatedAt(), after.getId(), limit);
+
+        boolean hasNext = rows.size() > size;
+        List<DealCard> content = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? DealCursor.after(content.get(size - 1), DealCursor.Sort.NEWEST).encode() : null;
+        return new CursorPage<>(content, next, size);
+    }
+}
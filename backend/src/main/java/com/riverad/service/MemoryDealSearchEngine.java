@@ -0,0 +1,79 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于内存倒排索引的搜索，按 BM25 相关度排序，不访问数据库。
+ */
+@Component
+@ConditionalOnProperty(name = "app.deals.search.engine", havingValue = "memory", matchIfMissing = true)
+public class MemoryDealSearchEngine implements DealSearchEngine {
+
+    @Autowired
+    private DealSearchIndex dealSearchIndex;
+
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public Page<DealCard> search(String keyword, Pageable pageable) {
+        DealSearchIndex.Result result = dealSearchIndex.search(keyword, null, pageable.getOffset(),
+                pageable.getPageSize());
+        return new PageImpl<>(toCards(result.hits()), pageable, result.total());
+    }
+
+    @Override
+    public Slice<DealCard> searchSlice(String keyword, Pageable pageable) {
+        DealSearchIndex.Result result = dealSearchIndex.search(keyword, null, pageable.getOffset(),
+                pageable.getPageSize());
+        boolean hasNext = pageable.getOffset() + pageable.getPageSize() < result.total();
+        return new SliceImpl<>(toCards(result.hits()), pageable, hasNext);
+    }
+
+    /**
+     * 按相关度的游标分页。索引更新会改变分数，翻页期间有新优惠上线时可能出现少量重复或遗漏。
+     */
+    @Override
+    public CursorPage<DealCard> searchAfter(String keyword, String cursor, int size) {
+        DealCursor after = DealCursor.decode(cursor, DealCursor.Sort.RELEVANCE);
+        List<DealSearchIndex.Hit> hits = dealSearchIndex.search(keyword, after, 0, size + 1).hits();
+
+        boolean hasNext = hits.size() > size;
+        List<DealSearchIndex.Hit> pageHits = hasNext ? hits.subList(0, size) : hits;
+        String next = null;
+        if (hasNext) {
+            DealSearchIndex.Hit last = pageHits.get(size - 1);
+            next = DealCursor.afterScore(DealCursor.Sort.RELEVANCE, last.score(), last.dealId()).encode();
+        }
+        return new CursorPage<>(toCards(pageHits), next, size);
+    }
+
+    private List<DealCard> toCards(List<DealSearchIndex.Hit> hits) {
+        DealSnapshot snapshot = dealSnapshotService.current();
+        List<DealCard> cards = new ArrayList<>(hits.size());
+        for (DealSearchIndex.Hit hit : hits) {
+            DealCard card = snapshot.card(hit.dealId());
+            if (card != null) {
+                cards.add(card);
+            }
+        }
+        return cards;
+    }
+}
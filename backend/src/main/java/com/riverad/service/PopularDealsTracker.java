@@ -0,0 +1,97 @@
+package com.riverad.service;
+
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Deal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 实时维护点击数前K名的活跃优惠。点击到达时增量调整，快照替换时同步活跃集合，
+ * 读取只复制K个元素。
+ */
+@Component
+public class PopularDealsTracker {
+
+    public record Ranked(Long dealId, long clicks) {}
+
+    private static final Comparator<Ranked> ORDER = Comparator
+            .comparingLong(Ranked::clicks).reversed()
+            .thenComparing(Ranked::dealId, Comparator.reverseOrder());
+
+    @Value("${app.deals.popular.top-k:100}")
+    private int capacity;
+
+    private final Map<Long, Long> counts = new HashMap<>();
+    private final Map<Long, Ranked> members = new HashMap<>();
+    private final TreeSet<Ranked> top = new TreeSet<>(ORDER);
+    private volatile List<Ranked> published;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 记录一次点击，非活跃优惠忽略。
+     */
+    public synchronized void recordClick(Long dealId) {
+        Long current = counts.get(dealId);
+        if (current == null) {
+            return;
+        }
+        long updated = current + 1;
+        counts.put(dealId, updated);
+        offer(dealId, updated);
+    }
+
+    public List<Ranked> top(int limit) {
+        List<Ranked> ranked = published;
+        if (ranked == null) {
+            synchronized (this) {
+                ranked = published;
+                if (ranked == null) {
+                    ranked = List.copyOf(top);
+                    published = ranked;
+                }
+            }
+        }
+        return ranked.subList(0, Math.min(Math.max(limit, 0), ranked.size()));
+    }
+
+    @EventListener
+    public synchronized void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        Map<Long, Long> active = new HashMap<>();
+        for (Deal deal : event.getSnapshot().deals()) {
+            long persisted = deal.getClickCount() != null ? deal.getClickCount() : 0;
+            // 内存计数可能领先于尚未提交的数据库值，取两者较大者
+            active.put(deal.getId(), Math.max(persisted, counts.getOrDefault(deal.getId(), 0L)));
+        }
+        counts.clear();
+        counts.putAll(active);
+        members.clear();
+        top.clear();
+        counts.forEach(this::offer);
+        published = null;
+    }
+
+    private void offer(Long dealId, long clicks) {
+        Ranked previous = members.remove(dealId);
+        if (previous != null) {
+            top.remove(previous);
+        }
+        Ranked candidate = new Ranked(dealId, clicks);
+        if (top.size() >= capacity) {
+            Ranked weakest = top.last();
+            if (ORDER.compare(candidate, weakest) >= 0) {
+                return;
+            }
+            top.pollLast();
+            members.remove(weakest.dealId());
+        }
+        top.add(candidate);
+        members.put(dealId, candidate);
+        published = null;
+    }
+}
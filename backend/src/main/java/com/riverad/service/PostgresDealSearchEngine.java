@@ -0,0 +1,169 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import com.riverad.repository.DealRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * PostgreSQL 原生检索：tsvector @@ plainto_tsquery 加 pg_trgm 相似度，按 ts_rank + word_similarity 排序，
+ * 走 GIN 表达式索引和三元组索引。连接的不是 PostgreSQL（如本地 H2）时退回 LIKE 引擎。
+ */
+@Component
+@ConditionalOnProperty(name = "app.deals.search.engine", havingValue = "postgres")
+public class PostgresDealSearchEngine implements DealSearchEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresDealSearchEngine.class);
+
+    // 表达式必须与 DealRepository.PG_DOCUMENT 一致，否则查询用不上索引
+    private static final List<String> INDEX_DDL = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS idx_deals_search_en ON deals USING gin " +
+                    "(to_tsvector('english', COALESCE(title_en, '') || ' ' || COALESCE(description_en, '')))",
+            "CREATE INDEX IF NOT EXISTS idx_deals_title_en_trgm ON deals USING gin (title_en gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_deals_title_zh_trgm ON deals USING gin (title_zh gin_trgm_ops)");
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+
+    @Autowired
+    private LikeDealSearchEngine likeDealSearchEngine;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.deals.search.postgres.ensure-indexes:true}")
+    private boolean ensureIndexes;
+
+    private volatile boolean available = true;
+
+    @Override
+    public String getName() {
+        return "postgres";
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            available = "PostgreSQL".equalsIgnoreCase(product);
+            if (!available) {
+                log.warn("Postgres search engine configured but database is {}, falling back to LIKE search", product);
+                return;
+            }
+        } catch (SQLException e) {
+            log.warn("Could not detect database type, keeping Postgres search engine enabled", e);
+        }
+        if (ensureIndexes) {
+            for (String ddl : INDEX_DDL) {
+                try {
+                    jdbcTemplate.execute(ddl);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to create search index: {}", ddl, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Page<DealCard> search(String keyword, Pageable pageable) {
+        if (!available) {
+            return likeDealSearchEngine.search(keyword, pageable);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = dealRepository.searchRankedPostgres(keyword, now, pageable.getPageSize(),
+                pageable.getOffset());
+        long total = dealRepository.countMatchesPostgres(keyword, now);
+        return new PageImpl<>(toCards(rows), pageable, total);
+    }
+
+    @Override
+    public Slice<DealCard> searchSlice(String keyword, Pageable pageable) {
+        if (!available) {
+            return likeDealSearchEngine.searchSlice(keyword, pageable);
+        }
+        List<Object[]> rows = dealRepository.searchRankedPostgres(keyword, LocalDateTime.now(),
+                pageable.getPageSize() + 1, pageable.getOffset());
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<Object[]> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        return new SliceImpl<>(toCards(content), pageable, hasNext);
+    }
+
+    @Override
+    public CursorPage<DealCard> searchAfter(String keyword, String cursor, int size) {
+        if (!available) {
+            return likeDealSearchEngine.searchAfter(keyword, cursor, size);
+        }
+        DealCursor after = DealCursor.decode(cursor, DealCursor.Sort.RELEVANCE);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = after == null
+                ? dealRepository.searchRankedPostgres(keyword, now, size + 1, 0)
+                : dealRepository.searchRankedPostgresAfter(keyword, now, after.getScore(), after.getId(), size + 1);
+
+        boolean hasNext = rows.size() > size;
+        List<Object[]> content = hasNext ? rows.subList(0, size) : rows;
+        String next = null;
+        if (hasNext) {
+            Object[] last = content.get(size - 1);
+            next = DealCursor.afterScore(DealCursor.Sort.RELEVANCE, ((Number) last[1]).doubleValue(),
+                    ((Number) last[0]).longValue()).encode();
+        }
+        return new CursorPage<>(toCards(content), next, size);
+    }
+
+    /**
+     * 优先从快照取卡片，快照中没有的（刚上线尚未重建）合并为一次 IN 查询，保持排名顺序。
+     */
+    private List<DealCard> toCards(List<Object[]> rows) {
+        DealSnapshot snapshot = dealSnapshotService.current();
+        Map<Long, DealCard> found = new HashMap<>(rows.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            DealCard card = snapshot.card(id);
+            if (card != null) {
+                found.put(id, card);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (DealCard card : dealRepository.findCardsByIdIn(missing)) {
+                found.put(card.id(), card);
+            }
+        }
+        List<DealCard> cards = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            DealCard card = found.get(((Number) row[0]).longValue());
+            if (card != null) {
+                cards.add(card);
+            }
+        }
+        return cards;
+    }
+}
@@ -0,0 +1,193 @@
+package com.riverad.service;
+
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Deal;
+import com.riverad.utils.BilingualTokenizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 搜索结果缓存，键为规范化后的关键词（去首尾空白、合并空白、转小写，附语言标记）加分页参数。
+ * 快照替换时找出新增、内容变化和下线的优惠，只失效关键词与这些优惠文本有交集的条目；
+ * 命中、未命中、失效次数通过 Micrometer 暴露（deals.search.cache）。
+ */
+@Service
+public class SearchResultCache {
+
+    private static final String METRIC = "deals.search.cache";
+
+    @Value("${app.deals.search.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.deals.search.cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    // 单次变化的优惠超过该数量时直接清空，比逐条匹配更省
+    @Value("${app.deals.search.cache.clear-threshold:500}")
+    private int clearThreshold;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final AtomicLong generation = new AtomicLong();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private DealSnapshot previous;
+
+    private record Entry(Object value, Set<String> terms, long createdAt) {}
+
+    public SearchResultCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder(METRIC).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder(METRIC).tag("result", "miss").register(meterRegistry);
+        this.invalidations = Counter.builder(METRIC).tag("result", "invalidated").register(meterRegistry);
+        Gauge.builder(METRIC + ".size", this, SearchResultCache::size).register(meterRegistry);
+    }
+
+    /**
+     * 规范化关键词：去首尾空白、合并连续空白、转小写，并按是否含汉字标记语言。
+     */
+    public static String normalize(String keyword) {
+        String text = keyword == null ? "" : keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        boolean cjk = text.codePoints().anyMatch(BilingualTokenizer::isCjk);
+        boolean latin = text.codePoints().anyMatch(c -> Character.isLetter(c) && !BilingualTokenizer.isCjk(c));
+        String language = cjk && latin ? "mixed" : cjk ? "zh" : "en";
+        return language + ":" + text;
+    }
+
+    /**
+     * 读取缓存，未命中时计算并写入。terms 为会影响该结果的关键词（原词及纠错后的词）。
+     * 计算期间发生失效时结果不写入，避免把旧数据放回缓存。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<Collection<String>> keywords, Supplier<T> loader) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.createdAt() <= ttlMs) {
+                hits.increment();
+                return (T) entry.value();
+            }
+        }
+        misses.increment();
+        long startedAt = generation.get();
+        T value = loader.get();
+        Set<String> terms = new HashSet<>();
+        for (String keyword : keywords.get()) {
+            if (keyword != null) {
+                terms.addAll(BilingualTokenizer.tokenize(keyword));
+            }
+        }
+        synchronized (entries) {
+            if (generation.get() == startedAt) {
+                entries.put(key, new Entry(value, terms, now));
+                while (entries.size() > maxEntries) {
+                    Iterator<String> eldest = entries.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return value;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 对比前后两个快照，收集受影响优惠的新旧文本，失效关键词出现在其中的条目。
+     * 用子串匹配判断，覆盖分词检索和 LIKE 检索两种语义。
+     */
+    @EventListener
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        DealSnapshot current = event.getSnapshot();
+        DealSnapshot before = previous;
+        previous = current;
+        if (before == null) {
+            clear();
+            return;
+        }
+
+        List<String> texts = new ArrayList<>();
+        for (Deal deal : current.deals()) {
+            Optional<Deal> old = before.get(deal.getId());
+            if (old.isEmpty()) {
+                texts.add(text(deal));
+            } else if (!Objects.equals(before.card(deal.getId()), current.card(deal.getId()))
+                    || !sameText(old.get(), deal)) {
+                texts.add(text(old.get()));
+                texts.add(text(deal));
+            }
+            if (texts.size() > clearThreshold * 2) {
+                clear();
+                return;
+            }
+        }
+        for (Deal deal : before.deals()) {
+            if (current.get(deal.getId()).isEmpty()) {
+                texts.add(text(deal));
+            }
+        }
+        if (texts.isEmpty()) {
+            return;
+        }
+        if (texts.size() > clearThreshold * 2) {
+            clear();
+            return;
+        }
+
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (affected(iterator.next(), texts)) {
+                    iterator.remove();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            invalidations.increment(entries.size());
+            entries.clear();
+        }
+    }
+
+    private static boolean affected(Entry entry, List<String> texts) {
+        for (String text : texts) {
+            for (String term : entry.terms()) {
+                if (text.contains(term)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameText(Deal a, Deal b) {
+        return Objects.equals(a.getTitleEn(), b.getTitleEn()) && Objects.equals(a.getTitleZh(), b.getTitleZh())
+                && Objects.equals(a.getShortDescriptionEn(), b.getShortDescriptionEn())
+                && Objects.equals(a.getShortDescriptionZh(), b.getShortDescriptionZh())
+                && Objects.equals(a.getDescriptionEn(), b.getDescriptionEn())
+                && Objects.equals(a.getDescriptionZh(), b.getDescriptionZh());
+    }
+
+    private static String text(Deal deal) {
+        return String.join(" ", Objects.toString(deal.getTitleEn(), ""), Objects.toString(deal.getTitleZh(), ""),
+                Objects.toString(deal.getShortDescriptionEn(), ""), Objects.toString(deal.getShortDescriptionZh(), ""),
+                Objects.toString(deal.getDescriptionEn(), ""), Objects.toString(deal.getDescriptionZh(), ""))
+                .toLowerCase(Locale.ROOT);
+    }
+}
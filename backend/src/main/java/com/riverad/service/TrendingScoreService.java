@@ -0,0 +1,205 @@
+package com.riverad.service;
+
+import com.riverad.dto.CursorPage;
+import com.riverad.dto.DealCard;
+import com.riverad.event.DealSnapshotRebuiltEvent;
+import com.riverad.model.Deal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于点击流的热度分：每个优惠按时间分桶计数，桶的权重随时间指数衰减。
+ * 采用前向衰减（新桶权重按 2^(桶时间/半衰期) 放大），并在对数空间计算：
+ * 分数 = log2(Σ 次数 × 2^(桶时间/半衰期))，以各优惠最新的桶为基准展开，不会随运行时间溢出，也不依赖进程启动时间。
+ * 分数只在有新点击或旧桶滑出窗口时变化，不会因单纯的时间流逝整体重排，可以作为游标分页的排序键。
+ * 排名由定时任务重算，读请求只做数组切片。
+ */
+@Service
+public class TrendingScoreService {
+
+    @Autowired
+    private DealSnapshotService dealSnapshotService;
+
+    @Value("${app.deals.trending.bucket-minutes:60}")
+    private long bucketMinutes;
+
+    @Value("${app.deals.trending.buckets:48}")
+    private int bucketCount;
+
+    @Value("${app.deals.trending.half-life-hours:6}")
+    private double halfLifeHours;
+
+    private final Map<Long, ClickBuckets> buckets = new ConcurrentHashMap<>();
+    private volatile Ranking ranking = new Ranking(new Long[0], new double[0]);
+
+    public void recordClick(Long dealId) {
+        long epoch = currentEpoch();
+        buckets.computeIfAbsent(dealId, id -> new ClickBuckets(bucketCount)).increment(epoch);
+    }
+
+    public Page<DealCard> page(DealSnapshot snapshot, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size);
+        Ranking current = ranking;
+        long offset = pageable.getOffset();
+        int from = (int) Math.min(offset, current.ids.length);
+        int to = Math.min(from + size, current.ids.length);
+        return new PageImpl<>(current.cards(snapshot, from, to), pageable, current.ids.length);
+    }
+
+    public CursorPage<DealCard> seek(DealSnapshot snapshot, DealCursor cursor, int size) {
+        Ranking current = ranking;
+        int from = cursor == null ? 0 : current.indexAfter(cursor.getScore(), cursor.getId());
+        int to = Math.min(from + size, current.ids.length);
+        List<DealCard> content = current.cards(snapshot, from, to);
+        String next = null;
+        if (to < current.ids.length && to > from) {
+            next = DealCursor.afterScore(DealCursor.Sort.TRENDING, current.scores[to - 1], current.ids[to - 1])
+                    .encode();
+        }
+        return new CursorPage<>(content, next, size);
+    }
+
+    @EventListener
+    public void onSnapshotRebuilt(DealSnapshotRebuiltEvent event) {
+        Set<Long> active = new HashSet<>();
+        for (Deal deal : event.getSnapshot().deals()) {
+            active.add(deal.getId());
+        }
+        buckets.keySet().retainAll(active);
+        recompute(event.getSnapshot());
+    }
+
+    @Scheduled(fixedDelayString = "${app.deals.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        recompute(dealSnapshotService.current());
+    }
+
+    private void recompute(DealSnapshot snapshot) {
+        long epoch = currentEpoch();
+        List<Deal> deals = snapshot.deals();
+        Long[] ids = new Long[deals.size()];
+        Map<Long, Double> scores = new HashMap<>(deals.size() * 2);
+        for (int i = 0; i < ids.length; i++) {
+            Long id = deals.get(i).getId();
+            ClickBuckets clicks = buckets.get(id);
+            ids[i] = id;
+            scores.put(id, clicks != null ? clicks.score(epoch, halfLivesPerBucket()) : 0.0);
+        }
+        Arrays.sort(ids, (a, b) -> {
+            int byScore = Double.compare(scores.get(b), scores.get(a));
+            return byScore != 0 ? byScore : Long.compare(b, a);
+        });
+        double[] sortedScores = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            sortedScores[i] = scores.get(ids[i]);
+        }
+        ranking = new Ranking(ids, sortedScores);
+    }
+
+    private long currentEpoch() {
+        return System.currentTimeMillis() / 60_000L / bucketMinutes;
+    }
+
+    private double halfLivesPerBucket() {
+        return bucketMinutes / 60.0 / halfLifeHours;
+    }
+
+    private static final class ClickBuckets {
+
+        private static final double LN2 = Math.log(2.0);
+
+        private final long[] epochs;
+        private final long[] counts;
+
+        ClickBuckets(int size) {
+            this.epochs = new long[size];
+            this.counts = new long[size];
+            Arrays.fill(epochs, -1L);
+        }
+
+        synchronized void increment(long epoch) {
+            int slot = (int) (epoch % epochs.length);
+            if (epochs[slot] != epoch) {
+                epochs[slot] = epoch;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+        }
+
+        /**
+         * log2(Σ 次数 × 2^(桶序号 × h)) = 最新桶序号 × h + log2(Σ 次数 × 2^((桶序号 - 最新桶序号) × h))，
+         * 右侧求和的每一项都不大于次数，窗口内没有点击时返回0。
+         */
+        synchronized double score(long nowEpoch, double halfLivesPerBucket) {
+            long newest = -1;
+            for (int i = 0; i < epochs.length; i++) {
+                if (epochs[i] >= 0 && nowEpoch - epochs[i] < epochs.length && counts[i] > 0) {
+                    newest = Math.max(newest, epochs[i]);
+                }
+            }
+            if (newest < 0) {
+                return 0.0;
+            }
+            double sum = 0.0;
+            for (int i = 0; i < epochs.length; i++) {
+                if (epochs[i] >= 0 && nowEpoch - epochs[i] < epochs.length) {
+                    sum += counts[i] * Math.pow(2.0, (epochs[i] - newest) * halfLivesPerBucket);
+                }
+            }
+            return newest * halfLivesPerBucket + Math.log(sum) / LN2;
+        }
+    }
+
+    private static final class Ranking {
+
+        private final Long[] ids;
+        private final double[] scores;
+
+        Ranking(Long[] ids, double[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        /**
+         * 按 (分数降序, id降序) 二分查找游标之后的位置。
+         */
+        int indexAfter(double score, Long id) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Double.compare(score, scores[mid]);
+                if (cmp == 0) {
+                    cmp = Long.compare(id, ids[mid]);
+                }
+                // 游标排在 mid 之前或等于 mid 时，继续向后找
+                if (cmp <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        List<DealCard> cards(DealSnapshot snapshot, int from, int to) {
+            List<DealCard> result = new ArrayList<>(Math.max(to - from, 0));
+            for (int i = from; i < to; i++) {
+                DealCard card = snapshot.card(ids[i]);
+                if (card != null) {
+                    result.add(card);
+                }
+            }
+            return result;
+        }
+    }
+}
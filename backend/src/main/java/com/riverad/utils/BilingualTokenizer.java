@@ -0,0 +1,59 @@
+package com.riverad.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 中英文混合分词：英文和数字按连续字母数字切词并转小写，汉字按相邻二元组切分
+ * （单个汉字单独成词），其余字符视为分隔符。索引和查询必须使用同一套规则。
+ */
+public final class BilingualTokenizer {
+
+    private BilingualTokenizer() {}
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                List<String> chars = new ArrayList<>();
+                while (i < length && isCjk(text.codePointAt(i))) {
+                    int next = i + Character.charCount(text.codePointAt(i));
+                    chars.add(text.substring(i, next));
+                    i = next;
+                }
+                if (chars.size() == 1) {
+                    tokens.add(text.substring(start, i));
+                } else {
+                    for (int c = 0; c + 1 < chars.size(); c++) {
+                        tokens.add(chars.get(c) + chars.get(c + 1));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int next = text.codePointAt(i);
+                    if (isCjk(next) || !Character.isLetterOrDigit(next)) {
+                        break;
+                    }
+                    i += Character.charCount(next);
+                }
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokens;
+    }
+
+    public static boolean isCjk(int codePoint) {
+        return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+    }
+}
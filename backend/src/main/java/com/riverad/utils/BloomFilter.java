@@ -0,0 +1,59 @@
+package com.riverad.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 布隆过滤器：按预期元素数和误判率确定位数与哈希次数，只会误判存在，不会漏判。
+ * 位数组固定大小，置位无锁。
+ */
+public class BloomFilter {
+
+    private final int hashes;
+    private final int mask;
+    private final AtomicLongArray words;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("布隆过滤器参数无效");
+        }
+        double bits = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int size = Integer.highestOneBit((int) Math.min(Math.ceil(bits), 1 << 30) - 1) << 1;
+        size = Math.max(size, 64);
+        this.mask = size - 1;
+        this.hashes = Math.max(1, (int) Math.round((double) size / expectedInsertions * Math.log(2)));
+        this.words = new AtomicLongArray(size >>> 6);
+    }
+
+    public boolean mightContain(CharSequence key) {
+        long hash = KeyHash.hash64(key);
+        for (int i = 0; i < hashes; i++) {
+            int bit = KeyHash.index(hash, i, mask);
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 加入元素，返回 false 表示加入前已（可能）存在。
+     */
+    public boolean put(CharSequence key) {
+        long hash = KeyHash.hash64(key);
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            int bit = KeyHash.index(hash, i, mask);
+            int word = bit >>> 6;
+            long flag = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & flag) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(word, current, current | flag));
+            changed |= (current & flag) == 0;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,95 @@
+package com.riverad.utils;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间排序的点击ID，布局同 UUIDv7：高48位为毫秒时间戳，随后12位为同一毫秒内的递增序号，
+ * 其余62位随机。序号用 CAS 推进，多线程无锁且严格递增；序号用尽时借用下一毫秒。
+ * 库中以16字节 UUID 存储，对外用26位 Crockford Base32 编码（与 ULID 相同），URL 安全且按字典序即时间序。
+ */
+public final class ClickIdGenerator {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 26;
+    private static final byte[] DECODE = new byte[128];
+    private static final AtomicLong LAST = new AtomicLong();
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+            DECODE[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+        // Crockford 约定的易混字符
+        DECODE['O'] = DECODE['o'] = 0;
+        DECODE['I'] = DECODE['i'] = DECODE['L'] = DECODE['l'] = 1;
+    }
+
+    private ClickIdGenerator() {
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long stamp;
+        long previous;
+        do {
+            previous = LAST.get();
+            stamp = Math.max(previous + 1, now);
+        } while (!LAST.compareAndSet(previous, stamp));
+
+        long millis = stamp >>> 12;
+        long sequence = stamp & 0xFFF;
+        long high = (millis << 16) | 0x7000L | sequence;
+        long low = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(high, low);
+    }
+
+    public static String nextEncoded() {
+        return encode(next());
+    }
+
+    /**
+     * 128位按5位一组编码为26个字符，首字符只含最高3位。
+     */
+    public static String encode(UUID id) {
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (low & 0x1F)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 解析编码后的点击ID，同时兼容旧版36位带连字符的 UUID 字符串。
+     */
+    public static UUID decode(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("点击ID不能为空");
+        }
+        if (text.length() == 36 && text.charAt(8) == '-') {
+            return UUID.fromString(text);
+        }
+        if (text.length() != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("点击ID格式无效: " + text);
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            char c = text.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0 || (i == 0 && value > 7)) {
+                throw new IllegalArgumentException("点击ID格式无效: " + text);
+            }
+            high = (high << 5) | (low >>> 59);
+            low = (low << 5) | value;
+        }
+        return new UUID(high, low);
+    }
+}
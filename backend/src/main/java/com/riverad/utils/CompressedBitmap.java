@@ -0,0 +1,418 @@
+package com.riverad.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+/**
+ * 不可变压缩位图（Roaring 思路）：按高16位分块，稀疏块存有序 char 数组，
+ * 超过4096个元素的稠密块存 1024 个 long 的位集。集合运算逐块合并，返回新位图。
+ * 只支持非负 int。
+ */
+public final class CompressedBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITSET_WORDS = 1024;
+    private static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new Object[0], new int[0]);
+
+    private final char[] keys;
+    // 每块为 char[]（有序数组）或 long[]（位集）
+    private final Object[] containers;
+    private final int[] counts;
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, Object[] containers, int[] counts) {
+        this.keys = keys;
+        this.containers = containers;
+        this.counts = counts;
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        this.cardinality = total;
+    }
+
+    public static CompressedBitmap empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static CompressedBitmap or(Collection<CompressedBitmap> bitmaps) {
+        CompressedBitmap result = EMPTY;
+        for (CompressedBitmap bitmap : bitmaps) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (value < 0 || index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, low) >= 0;
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        Merger merger = new Merger(Math.min(keys.length, other.keys.length));
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                merger.add(keys[i], and(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return merger.build();
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        Merger merger = new Merger(keys.length + other.keys.length);
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                merger.add(keys[i], containers[i]);
+                i++;
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                merger.add(other.keys[j], other.containers[j]);
+                j++;
+            } else {
+                merger.add(keys[i], or(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return merger.build();
+    }
+
+    /**
+     * 交集基数，不构造中间位图，用于分面计数。
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += andCardinality(containers[i], other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 按升序遍历所有元素。
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int k = 0; k < keys.length; k++) {
+            int high = keys[k] << 16;
+            Object container = containers[k];
+            if (container instanceof long[] bits) {
+                for (int w = 0; w < bits.length; w++) {
+                    long word = bits[w];
+                    while (word != 0) {
+                        consumer.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (char low : (char[]) container) {
+                    consumer.accept(high | low);
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] position = {0};
+        forEach(value -> result[position[0]++] = value);
+        return result;
+    }
+
+    private static Object and(Object a, Object b) {
+        if (a instanceof long[] bitsA && b instanceof long[] bitsB) {
+            long[] words = new long[BITSET_WORDS];
+            for (int w = 0; w < BITSET_WORDS; w++) {
+                words[w] = bitsA[w] & bitsB[w];
+            }
+            return compact(words);
+        }
+        if (a instanceof long[] bits) {
+            return filter((char[]) b, bits);
+        }
+        if (b instanceof long[] bits) {
+            return filter((char[]) a, bits);
+        }
+        char[] arrayA = (char[]) a;
+        char[] arrayB = (char[]) b;
+        char[] result = new char[Math.min(arrayA.length, arrayB.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < arrayA.length && j < arrayB.length) {
+            if (arrayA[i] < arrayB[j]) {
+                i++;
+            } else if (arrayA[i] > arrayB[j]) {
+                j++;
+            } else {
+                result[n++] = arrayA[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int andCardinality(Object a, Object b) {
+        if (a instanceof long[] bitsA && b instanceof long[] bitsB) {
+            int count = 0;
+            for (int w = 0; w < BITSET_WORDS; w++) {
+                count += Long.bitCount(bitsA[w] & bitsB[w]);
+            }
+            return count;
+        }
+        if (a instanceof long[] || b instanceof long[]) {
+            long[] bits = a instanceof long[] words ? words : (long[]) b;
+            char[] values = a instanceof long[] ? (char[]) b : (char[]) a;
+            int count = 0;
+            for (char value : values) {
+                if ((bits[value >>> 6] & (1L << value)) != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        char[] arrayA = (char[]) a;
+        char[] arrayB = (char[]) b;
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < arrayA.length && j < arrayB.length) {
+            if (arrayA[i] < arrayB[j]) {
+                i++;
+            } else if (arrayA[i] > arrayB[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static Object or(Object a, Object b) {
+        if (a instanceof long[] || b instanceof long[]) {
+            long[] words = new long[BITSET_WORDS];
+            setAll(words, a);
+            setAll(words, b);
+            return words;
+        }
+        char[] arrayA = (char[]) a;
+        char[] arrayB = (char[]) b;
+        char[] result = new char[arrayA.length + arrayB.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < arrayA.length || j < arrayB.length) {
+            if (j == arrayB.length || (i < arrayA.length && arrayA[i] < arrayB[j])) {
+                result[n++] = arrayA[i++];
+            } else if (i == arrayA.length || arrayA[i] > arrayB[j]) {
+                result[n++] = arrayB[j++];
+            } else {
+                result[n++] = arrayA[i++];
+                j++;
+            }
+        }
+        if (n > ARRAY_LIMIT) {
+            long[] words = new long[BITSET_WORDS];
+            setAll(words, Arrays.copyOf(result, n));
+            return words;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static char[] filter(char[] values, long[] bits) {
+        char[] result = new char[values.length];
+        int n = 0;
+        for (char value : values) {
+            if ((bits[value >>> 6] & (1L << value)) != 0) {
+                result[n++] = value;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static void setAll(long[] words, Object container) {
+        if (container instanceof long[] bits) {
+            for (int w = 0; w < BITSET_WORDS; w++) {
+                words[w] |= bits[w];
+            }
+        } else {
+            for (char value : (char[]) container) {
+                words[value >>> 6] |= 1L << value;
+            }
+        }
+    }
+
+    /**
+     * 位集元素不多于阈值时退化为数组，保持稀疏块紧凑。
+     */
+    private static Object compact(long[] words) {
+        int count = bitCount(words);
+        if (count > ARRAY_LIMIT) {
+            return words;
+        }
+        char[] values = new char[count];
+        int n = 0;
+        for (int w = 0; w < BITSET_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    private static int bitCount(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static int count(Object container) {
+        return container instanceof long[] bits ? bitCount(bits) : ((char[]) container).length;
+    }
+
+    private static final class Merger {
+
+        private char[] keys;
+        private Object[] containers;
+        private int[] counts;
+        private int size;
+
+        Merger(int capacity) {
+            this.keys = new char[capacity];
+            this.containers = new Object[capacity];
+            this.counts = new int[capacity];
+        }
+
+        void add(char key, Object container) {
+            int count = count(container);
+            if (count == 0) {
+                return;
+            }
+            if (size == keys.length) {
+                int grown = Math.max(4, size * 2);
+                keys = Arrays.copyOf(keys, grown);
+                containers = Arrays.copyOf(containers, grown);
+                counts = Arrays.copyOf(counts, grown);
+            }
+            keys[size] = key;
+            containers[size] = container;
+            counts[size] = count;
+            size++;
+        }
+
+        CompressedBitmap build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new CompressedBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size),
+                    Arrays.copyOf(counts, size));
+        }
+    }
+
+    /**
+     * 按升序追加元素构建位图，重复值忽略。
+     */
+    public static final class Builder {
+
+        private final Merger chunks = new Merger(1);
+        private char[] buffer = new char[16];
+        private int buffered;
+        private int currentKey = -1;
+        private int last = -1;
+
+        public Builder add(int value) {
+            if (value < 0 || value < last) {
+                throw new IllegalArgumentException("位图元素必须为非负数且按升序添加");
+            }
+            if (value == last) {
+                return this;
+            }
+            int key = value >>> 16;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+            }
+            if (buffered == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffered * 2);
+            }
+            buffer[buffered++] = (char) value;
+            last = value;
+            return this;
+        }
+
+        public CompressedBitmap build() {
+            flush();
+            return chunks.build();
+        }
+
+        private void flush() {
+            if (buffered == 0) {
+                return;
+            }
+            char[] values = Arrays.copyOf(buffer, buffered);
+            if (buffered > ARRAY_LIMIT) {
+                long[] words = new long[BITSET_WORDS];
+                setAll(words, values);
+                chunks.add((char) currentKey, words);
+            } else {
+                chunks.add((char) currentKey, values);
+            }
+            buffered = 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.riverad.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-Min 草图：depth 行、每行 width 个计数器（取2的幂），每个键在每行命中一个计数器，
+ * 估计值取各行最小值，只会高估不会低估。内存固定，计数无锁。
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final AtomicIntegerArray counters;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("草图参数无效");
+        }
+        int size = width == 1 ? 1 : Integer.highestOneBit((width - 1) << 1);
+        this.depth = depth;
+        this.mask = size - 1;
+        this.counters = new AtomicIntegerArray(size * depth);
+    }
+
+    /**
+     * 计数加一并返回加一后的估计值。
+     */
+    public int add(CharSequence key) {
+        long hash = KeyHash.hash64(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int count = counters.incrementAndGet(offset(row) + KeyHash.index(hash, row, mask));
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    public int estimate(CharSequence key) {
+        long hash = KeyHash.hash64(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(offset(row) + KeyHash.index(hash, row, mask)));
+        }
+        return estimate;
+    }
+
+    private int offset(int row) {
+        return row * (mask + 1);
+    }
+}
@@ -0,0 +1,33 @@
+package com.riverad.utils;
+
+/**
+ * 概率结构共用的64位哈希（FNV-1a 加 murmur 终结混合），再由双哈希法派生多组下标。
+ */
+public final class KeyHash {
+
+    private KeyHash() {
+    }
+
+    public static long hash64(CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * 第 i 组下标：h1 + i * h2，结果对 2 的幂取模。
+     */
+    static int index(long hash, int i, int mask) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return (h1 + i * h2) & mask;
+    }
+}
@@ -0,0 +1,134 @@
+package com.riverad.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 只读的前缀 Top-K 结构：键按字典序排成数组，同一前缀的键是一段连续区间；
+ * 每64个元素一块记录块内最大权重，块最大值上再建稀疏表，区间最大值查询为常数级。
+ * 取前K个时每次从候选区间中取出权重最大者并把区间一分为二，复杂度 O(K log K)，与命中数无关。
+ */
+public final class PrefixTopK {
+
+    private static final int BLOCK = 64;
+
+    private final String[] keys;
+    private final long[] weights;
+    private final int[] blockMax;
+    private final int[][] sparse;
+
+    /**
+     * keys 必须已按字典序排序，weights 与之一一对应。
+     */
+    public PrefixTopK(String[] keys, long[] weights) {
+        if (keys.length != weights.length) {
+            throw new IllegalArgumentException("键与权重数量不一致");
+        }
+        this.keys = keys;
+        this.weights = weights;
+        int blocks = (keys.length + BLOCK - 1) / BLOCK;
+        this.blockMax = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            blockMax[b] = scan(b * BLOCK, Math.min((b + 1) * BLOCK, keys.length));
+        }
+        int levels = 1;
+        while ((1 << levels) <= blocks) {
+            levels++;
+        }
+        this.sparse = new int[levels][];
+        sparse[0] = blockMax;
+        for (int level = 1; level < levels; level++) {
+            int width = 1 << level;
+            int[] row = new int[blocks - width + 1];
+            for (int b = 0; b < row.length; b++) {
+                row[b] = better(sparse[level - 1][b], sparse[level - 1][b + width / 2]);
+            }
+            sparse[level] = row;
+        }
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 返回以 prefix 开头、权重最高的至多 limit 个元素下标，按权重降序。
+     */
+    public int[] top(String prefix, int limit) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        if (from >= to || limit <= 0) {
+            return new int[0];
+        }
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compare(a[0], b[0]));
+        ranges.add(new int[] {argMax(from, to), from, to});
+        List<Integer> result = new ArrayList<>(limit);
+        while (!ranges.isEmpty() && result.size() < limit) {
+            int[] range = ranges.poll();
+            int best = range[0];
+            result.add(best);
+            if (range[1] < best) {
+                ranges.add(new int[] {argMax(range[1], best), range[1], best});
+            }
+            if (best + 1 < range[2]) {
+                ranges.add(new int[] {argMax(best + 1, range[2]), best + 1, range[2]});
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int lowerBound(String key) {
+        int pos = Arrays.binarySearch(keys, key);
+        if (pos >= 0) {
+            while (pos > 0 && keys[pos - 1].equals(key)) {
+                pos--;
+            }
+            return pos;
+        }
+        return -pos - 1;
+    }
+
+    private int argMax(int from, int to) {
+        int firstBlock = from / BLOCK;
+        int lastBlock = (to - 1) / BLOCK;
+        if (firstBlock == lastBlock) {
+            return scan(from, to);
+        }
+        int best = better(scan(from, (firstBlock + 1) * BLOCK), scan(lastBlock * BLOCK, to));
+        if (firstBlock + 1 < lastBlock) {
+            best = better(best, blockRange(firstBlock + 1, lastBlock));
+        }
+        return best;
+    }
+
+    private int blockRange(int fromBlock, int toBlock) {
+        int level = 31 - Integer.numberOfLeadingZeros(toBlock - fromBlock);
+        return better(sparse[level][fromBlock], sparse[level][toBlock - (1 << level)]);
+    }
+
+    private int scan(int from, int to) {
+        int best = from;
+        for (int i = from + 1; i < to; i++) {
+            best = better(best, i);
+        }
+        return best;
+    }
+
+    private int better(int a, int b) {
+        return compare(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * 权重高者在前，权重相同时键短者在前。
+     */
+    private int compare(int a, int b) {
+        int byWeight = Long.compare(weights[b], weights[a]);
+        if (byWeight != 0) {
+            return byWeight;
+        }
+        int byLength = Integer.compare(keys[a].length(), keys[b].length());
+        return byLength != 0 ? byLength : Integer.compare(a, b);
+    }
+}
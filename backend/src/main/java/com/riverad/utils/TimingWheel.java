@@ -0,0 +1,122 @@
+package com.riverad.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮。第0层每格一个tick，第i层每格覆盖第i-1层一整圈；
+ * 超出最高层范围的任务放入溢出列表，最高层每跨过一格时重新分配。
+ * 插入 O(1)，推进时按格批量触发，不支持取消（由调用方在触发时校验是否仍有效）。
+ */
+public class TimingWheel<T> {
+
+    private record Entry<T>(T item, long deadline) {}
+
+    private final long tickMillis;
+    private final int slotsPerLevel;
+    private final long[] levelTicks;
+    private final ArrayDeque<Entry<T>>[][] slots;
+    private final List<Entry<T>> overflow = new ArrayList<>();
+    private final List<Entry<T>> due = new ArrayList<>();
+    private long currentTime;
+    private int pending;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int slotsPerLevel, int levels, long startMillis) {
+        if (tickMillis <= 0 || slotsPerLevel < 2 || levels < 1) {
+            throw new IllegalArgumentException("时间轮参数无效");
+        }
+        this.tickMillis = tickMillis;
+        this.slotsPerLevel = slotsPerLevel;
+        this.levelTicks = new long[levels];
+        this.slots = (ArrayDeque<Entry<T>>[][]) new ArrayDeque<?>[levels][slotsPerLevel];
+        long tick = tickMillis;
+        for (int level = 0; level < levels; level++) {
+            levelTicks[level] = tick;
+            for (int slot = 0; slot < slotsPerLevel; slot++) {
+                slots[level][slot] = new ArrayDeque<>();
+            }
+            tick = Math.multiplyExact(tick, slotsPerLevel);
+        }
+        this.currentTime = startMillis - Math.floorMod(startMillis, tickMillis);
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        insert(new Entry<>(item, deadlineMillis));
+        pending++;
+    }
+
+    /**
+     * 推进到 nowMillis，所有到期任务按到期顺序（同一格内不保证顺序）交给 consumer。
+     */
+    public synchronized void advance(long nowMillis, Consumer<T> consumer) {
+        if (pending == 0) {
+            currentTime = Math.max(currentTime, nowMillis - Math.floorMod(nowMillis, tickMillis));
+            return;
+        }
+        while (currentTime + tickMillis <= nowMillis) {
+            ArrayDeque<Entry<T>> bucket = slots[0][slotIndex(0, currentTime)];
+            due.addAll(bucket);
+            bucket.clear();
+            currentTime += tickMillis;
+            cascade();
+        }
+        for (Entry<T> entry : due) {
+            consumer.accept(entry.item());
+        }
+        pending -= due.size();
+        due.clear();
+    }
+
+    public synchronized int size() {
+        return pending;
+    }
+
+    private void insert(Entry<T> entry) {
+        if (entry.deadline() < currentTime) {
+            due.add(entry);
+            return;
+        }
+        for (int level = 0; level < levelTicks.length; level++) {
+            long tick = levelTicks[level];
+            long levelStart = currentTime - Math.floorMod(currentTime, tick);
+            if (entry.deadline() < levelStart + tick * slotsPerLevel) {
+                slots[level][slotIndex(level, entry.deadline())].add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    /**
+     * 跨越上层格子边界时，从最高的边界层开始把当前格的任务下放到更精细的层。
+     */
+    private void cascade() {
+        int top = 0;
+        for (int level = 1; level < levelTicks.length; level++) {
+            if (Math.floorMod(currentTime, levelTicks[level]) != 0) {
+                break;
+            }
+            top = level;
+        }
+        if (top == levelTicks.length - 1 && !overflow.isEmpty()) {
+            List<Entry<T>> waiting = new ArrayList<>(overflow);
+            overflow.clear();
+            waiting.forEach(this::insert);
+        }
+        for (int level = top; level >= 1; level--) {
+            ArrayDeque<Entry<T>> bucket = slots[level][slotIndex(level, currentTime)];
+            if (!bucket.isEmpty()) {
+                List<Entry<T>> moving = new ArrayList<>(bucket);
+                bucket.clear();
+                moving.forEach(this::insert);
+            }
+        }
+    }
+
+    private int slotIndex(int level, long time) {
+        return (int) Math.floorMod(Math.floorDiv(time, levelTicks[level]), (long) slotsPerLevel);
+    }
+}
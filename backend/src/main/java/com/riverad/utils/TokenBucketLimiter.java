@@ -0,0 +1,135 @@
+package com.riverad.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 分片令牌桶限流。每个键一个桶，容量为 permits，每 windowMillis 补满；
+ * 键按哈希分到多个分片，各分片独立加锁并按最近访问顺序限制条目数，超出时淘汰最久未访问的桶。
+ * 已补满的桶与不存在等价，可随时清理。
+ */
+public class TokenBucketLimiter {
+
+    private static final class Bucket {
+        double tokens;
+        long updatedAt;
+    }
+
+    private final int permits;
+    private final double tokensPerNano;
+    private final Shard[] shards;
+
+    public TokenBucketLimiter(int permits, long windowMillis, int maxKeys, int shardCount) {
+        if (permits <= 0 || windowMillis <= 0 || maxKeys <= 0 || shardCount <= 0) {
+            throw new IllegalArgumentException("限流参数无效");
+        }
+        this.permits = permits;
+        this.tokensPerNano = permits / (windowMillis * 1_000_000.0);
+        this.shards = new Shard[shardCount];
+        int perShard = Math.max(1, maxKeys / shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(perShard);
+        }
+    }
+
+    /**
+     * 尝试取一个令牌，成功返回 true。
+     */
+    public boolean tryAcquire(String key, long nowNanos) {
+        Shard shard = shards[Math.floorMod(spread(key.hashCode()), shards.length)];
+        synchronized (shard) {
+            Bucket bucket = shard.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket();
+                bucket.tokens = permits;
+                bucket.updatedAt = nowNanos;
+                shard.put(key, bucket);
+            } else {
+                refill(bucket, nowNanos);
+            }
+            if (bucket.tokens < 1) {
+                return false;
+            }
+            bucket.tokens -= 1;
+            return true;
+        }
+    }
+
+    /**
+     * 归还一个刚取到的令牌（如组合限流中后一个桶拒绝时），桶已被淘汰则忽略。
+     */
+    public void release(String key) {
+        Shard shard = shards[Math.floorMod(spread(key.hashCode()), shards.length)];
+        synchronized (shard) {
+            Bucket bucket = shard.buckets.get(key);
+            if (bucket != null) {
+                bucket.tokens = Math.min(permits, bucket.tokens + 1);
+            }
+        }
+    }
+
+    /**
+     * 清理已补满的桶，返回清理数量。
+     */
+    public int evictIdle(long nowNanos) {
+        int evicted = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                var iterator = shard.buckets.values().iterator();
+                while (iterator.hasNext()) {
+                    Bucket bucket = iterator.next();
+                    refill(bucket, nowNanos);
+                    if (bucket.tokens >= permits) {
+                        iterator.remove();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private void refill(Bucket bucket, long nowNanos) {
+        long elapsed = nowNanos - bucket.updatedAt;
+        if (elapsed > 0) {
+            bucket.tokens = Math.min(permits, bucket.tokens + elapsed * tokensPerNano);
+            bucket.updatedAt = nowNanos;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 按访问顺序排列的桶表，插入超出上限时淘汰最久未访问的桶。
+     */
+    private static final class Shard {
+
+        private final LinkedHashMap<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+
+        Shard(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        void put(String key, Bucket bucket) {
+            buckets.put(key, bucket);
+            if (buckets.size() > maxEntries) {
+                Iterator<Bucket> eldest = buckets.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+}
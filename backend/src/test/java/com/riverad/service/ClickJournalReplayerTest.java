@@ -0,0 +1,236 @@
+package com.riverad.service;
+
+import com.riverad.dto.ClickEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickJournalReplayerTest {
+
+    @TempDir
+    Path dir;
+
+    private ClickJournalReplayer replayer;
+
+    @AfterEach
+    void stopReplayer() throws InterruptedException {
+        if (replayer != null) {
+            replayer.stop();
+        }
+    }
+
+    @Test
+    void writeReplayedSkipsClicksAlreadyStored() {
+        ClickTable table = new ClickTable();
+        ClickIngestionService ingestion = ingestion(table);
+        List<ClickEvent> clicks = List.of(click(1), click(2), click(3));
+
+        ingestion.writeReplayed(clicks);
+        ingestion.writeReplayed(List.of(clicks.get(0), clicks.get(1), clicks.get(2), click(4)));
+
+        assertEquals(4, table.rows.size());
+        assertEquals(4, table.inserts);
+    }
+
+    @Test
+    void writeReplayedDropsOnlyInvalidRows() {
+        ClickTable table = new ClickTable();
+        ClickIngestionService ingestion = ingestion(table);
+        ClickEvent good = click(1);
+        ClickEvent invalid = click(ClickTable.INVALID_DEAL);
+        ClickEvent other = click(2);
+
+        ingestion.writeReplayed(List.of(good, invalid, other));
+
+        assertEquals(Set.of(good.clickId(), other.clickId()), table.rows);
+    }
+
+    @Test
+    void writeReplayedPropagatesDatabaseOutage() {
+        ClickTable table = new ClickTable();
+        table.available = false;
+        ClickIngestionService ingestion = ingestion(table);
+
+        assertThrows(DataAccessResourceFailureException.class, () -> ingestion.writeReplayed(List.of(click(1))));
+        assertTrue(table.rows.isEmpty());
+    }
+
+    @Test
+    void replayKeepsCheckpointUntilWriteSucceeds() throws Exception {
+        ClickJournal journal = journal();
+        ClickTable table = new ClickTable();
+        table.failuresLeft = 3;
+        List<UUID> appended = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ClickEvent click = click(i);
+            assertTrue(journal.append(click));
+            appended.add(click.clickId());
+        }
+
+        replayer = replayer(journal, ingestion(table));
+        replayer.start();
+        awaitDrained(journal);
+
+        assertEquals(new HashSet<>(appended), table.rows);
+        assertEquals(5, table.inserts);
+        assertEquals(0, table.failuresLeft);
+    }
+
+    @Test
+    void replayAfterCrashBeforeAcknowledgeStoresEachClickOnce() throws Exception {
+        ClickJournal journal = journal();
+        ClickTable table = new ClickTable();
+        ClickIngestionService ingestion = ingestion(table);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(journal.append(click(i)));
+        }
+        // 写库成功但 checkpoint 尚未推进时进程退出
+        List<ClickEvent> batch = new ArrayList<>();
+        journal.read(journal.checkpoint(), 100, batch);
+        ingestion.writeReplayed(batch);
+        journal.force();
+
+        ClickJournal reopened = journal();
+        replayer = replayer(reopened, ingestion);
+        replayer.start();
+        awaitDrained(reopened);
+
+        assertEquals(4, table.rows.size());
+        assertEquals(4, table.inserts);
+    }
+
+    private ClickJournal journal() throws IOException {
+        ClickJournal journal = new ClickJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", 4096);
+        ReflectionTestUtils.setField(journal, "maxSegments", 8);
+        journal.open();
+        return journal;
+    }
+
+    private static ClickIngestionService ingestion(ClickTable table) {
+        ClickIngestionService ingestion = new ClickIngestionService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ingestion, "jdbcTemplate", table);
+        ReflectionTestUtils.setField(ingestion, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(ingestion, "rowsPerStatement", 2);
+        return ingestion;
+    }
+
+    private static ClickJournalReplayer replayer(ClickJournal journal, ClickIngestionService ingestion) {
+        ClickJournalReplayer replayer = new ClickJournalReplayer();
+        ReflectionTestUtils.setField(replayer, "clickJournal", journal);
+        ReflectionTestUtils.setField(replayer, "clickIngestionService", ingestion);
+        ReflectionTestUtils.setField(replayer, "batchSize", 2);
+        ReflectionTestUtils.setField(replayer, "idlePollMs", 5L);
+        ReflectionTestUtils.setField(replayer, "maxBackoffMs", 20L);
+        return replayer;
+    }
+
+    private static void awaitDrained(ClickJournal journal) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!journal.isDrained()) {
+            assertTrue(System.currentTimeMillis() < deadline, "journal was not drained in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static ClickEvent click(long dealId) {
+        return new ClickEvent(UUID.randomUUID(), dealId, null, "203.0.113.7", "UA", null,
+                LocalDateTime.of(2024, 1, 1, 0, 0), false);
+    }
+
+    /**
+     * 以内存集合模拟 affiliate_clicks：按 click_id 去重查询，插入时主键冲突或 deal_id 非法即抛出完整性异常。
+     */
+    private static class ClickTable extends JdbcTemplate {
+
+        static final long INVALID_DEAL = -1L;
+
+        final Set<UUID> rows = Collections.synchronizedSet(new HashSet<>());
+        volatile boolean available = true;
+        volatile int failuresLeft;
+        volatile int inserts;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            checkAvailable();
+            return (List<T>) Arrays.stream(args).filter(rows::contains).toList();
+        }
+
+        @Override
+        public int update(String sql, PreparedStatementSetter setter) {
+            checkAvailable();
+            List<UUID> ids = new ArrayList<>();
+            List<Long> dealIds = new ArrayList<>();
+            PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("setObject") && args[1] instanceof UUID id) {
+                            ids.add(id);
+                        } else if (method.getName().equals("setLong") && ids.size() > dealIds.size()) {
+                            dealIds.add((Long) args[1]);
+                        }
+                        return null;
+                    });
+            try {
+                setter.setValues(statement);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            if (dealIds.contains(INVALID_DEAL) || ids.stream().anyMatch(rows::contains)) {
+                throw new DataIntegrityViolationException("constraint violation");
+            }
+            rows.addAll(ids);
+            inserts += ids.size();
+            return ids.size();
+        }
+
+        private void checkAvailable() {
+            if (!available) {
+                throw new DataAccessResourceFailureException("database unavailable");
+            }
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+        }
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
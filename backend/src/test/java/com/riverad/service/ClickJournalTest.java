@@ -0,0 +1,198 @@
+package com.riverad.service;
+
+import com.riverad.dto.ClickEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickJournalTest {
+
+    // 每条测试记录编码后 70 字节，加 8 字节头共 78 字节，256 字节的段正好放 3 条
+    private static final int SMALL_SEGMENT = 256;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsAllFields() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 64);
+        ClickEvent full = new ClickEvent(UUID.randomUUID(), 42L, 7L, "2001:db8::1", "Mozilla/5.0 中文",
+                "https://example.com/a?b=c", LocalDateTime.of(2024, 5, 6, 7, 8, 9, 123_456_789), true);
+        ClickEvent sparse = new ClickEvent(UUID.randomUUID(), 43L, null, null, null, null,
+                LocalDateTime.of(2024, 5, 6, 7, 8, 10), false);
+
+        assertTrue(journal.append(full));
+        assertTrue(journal.append(sparse));
+
+        assertEquals(List.of(full, sparse), readAll(journal));
+    }
+
+    @Test
+    void rotatesToNextSegmentWhenFull() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 64);
+        List<ClickEvent> appended = appendClicks(journal, 10);
+
+        assertEquals(4, segmentFiles().size());
+        assertEquals(appended, readAll(journal));
+    }
+
+    @Test
+    void readStopsAtBatchLimitAndResumesFromReturnedPosition() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 64);
+        List<ClickEvent> appended = appendClicks(journal, 7);
+
+        List<ClickEvent> first = new ArrayList<>();
+        ClickJournal.Position next = journal.read(journal.checkpoint(), 4, first);
+        List<ClickEvent> rest = new ArrayList<>();
+        journal.read(next, 100, rest);
+
+        assertEquals(appended.subList(0, 4), first);
+        assertEquals(appended.subList(4, 7), rest);
+    }
+
+    @Test
+    void acknowledgeDeletesConsumedSegmentsAndSurvivesReopen() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 64);
+        List<ClickEvent> appended = appendClicks(journal, 10);
+
+        List<ClickEvent> consumed = new ArrayList<>();
+        ClickJournal.Position position = journal.read(journal.checkpoint(), 7, consumed);
+        journal.acknowledge(position);
+        journal.force();
+
+        assertEquals(3, position.segment());
+        assertEquals(List.of(segment(3), segment(4)), segmentFiles());
+        assertFalse(journal.isDrained());
+
+        ClickJournal reopened = open(SMALL_SEGMENT, 64);
+        assertEquals(position, reopened.checkpoint());
+        assertEquals(appended.subList(7, 10), readAll(reopened));
+    }
+
+    @Test
+    void unacknowledgedRecordsAreReplayedAfterReopen() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 64);
+        List<ClickEvent> appended = appendClicks(journal, 5);
+        readAll(journal);
+        journal.force();
+
+        assertEquals(appended, readAll(open(SMALL_SEGMENT, 64)));
+    }
+
+    @Test
+    void recoverDiscardsTornRecordWithBadChecksum() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 64);
+        List<ClickEvent> appended = appendClicks(journal, 2);
+        journal.force();
+        int end = endOffset(journal);
+
+        // 长度已写入但内容不完整：CRC 对不上
+        writeAt(segment(1), end, ByteBuffer.allocate(16).putInt(70).putInt(0x12345678).putLong(-1L).flip());
+
+        ClickJournal reopened = open(SMALL_SEGMENT, 64);
+        assertEquals(appended, readAll(reopened));
+
+        ClickEvent next = click(99);
+        assertTrue(reopened.append(next));
+        assertEquals(List.of(appended.get(0), appended.get(1), next), readAll(reopened));
+    }
+
+    @Test
+    void recoverZeroesGarbageAfterLastRecord() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 64);
+        List<ClickEvent> appended = appendClicks(journal, 1);
+        journal.force();
+        int end = endOffset(journal);
+
+        // 长度字段越界的残留数据，恢复后应被清零，不会在之后被误读
+        writeAt(segment(1), end, ByteBuffer.allocate(8).putInt(Integer.MAX_VALUE).putInt(1).flip());
+
+        ClickJournal reopened = open(SMALL_SEGMENT, 64);
+        reopened.force();
+        assertEquals(appended, readAll(reopened));
+        ByteBuffer header = ByteBuffer.allocate(8);
+        try (FileChannel channel = FileChannel.open(segment(1), StandardOpenOption.READ)) {
+            channel.read(header, end);
+        }
+        assertEquals(0L, header.flip().getLong());
+    }
+
+    @Test
+    void appendFailsWhenBacklogExceedsMaxSegments() throws IOException {
+        ClickJournal journal = open(SMALL_SEGMENT, 2);
+        appendClicks(journal, 6);
+
+        assertFalse(journal.append(click(100)));
+
+        List<ClickEvent> consumed = new ArrayList<>();
+        journal.acknowledge(journal.read(journal.checkpoint(), 100, consumed));
+        assertEquals(6, consumed.size());
+        assertTrue(journal.isDrained());
+        assertTrue(journal.append(click(101)));
+    }
+
+    private ClickJournal open(int segmentBytes, int maxSegments) throws IOException {
+        ClickJournal journal = new ClickJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(journal, "maxSegments", maxSegments);
+        journal.open();
+        return journal;
+    }
+
+    private static ClickEvent click(long dealId) {
+        return new ClickEvent(UUID.randomUUID(), dealId, null, "203.0.113.7", "UA", null,
+                LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(dealId), false);
+    }
+
+    private static List<ClickEvent> appendClicks(ClickJournal journal, int count) {
+        List<ClickEvent> appended = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ClickEvent click = click(i);
+            assertTrue(journal.append(click));
+            appended.add(click);
+        }
+        return appended;
+    }
+
+    private static List<ClickEvent> readAll(ClickJournal journal) throws IOException {
+        List<ClickEvent> out = new ArrayList<>();
+        journal.read(journal.checkpoint(), Integer.MAX_VALUE, out);
+        return out;
+    }
+
+    private static int endOffset(ClickJournal journal) throws IOException {
+        return journal.read(journal.checkpoint(), Integer.MAX_VALUE, new ArrayList<>()).offset();
+    }
+
+    private static void writeAt(Path file, int offset, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, offset);
+        }
+    }
+
+    private Path segment(long segment) {
+        return dir.resolve(String.format("clicks-%016d.seg", segment));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+}
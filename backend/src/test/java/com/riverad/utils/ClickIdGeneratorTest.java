@@ -0,0 +1,118 @@
+package com.riverad.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickIdGeneratorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        List<UUID> ids = new ArrayList<>(List.of(new UUID(0L, 0L), new UUID(-1L, -1L),
+                new UUID(Long.MIN_VALUE, 1L), new UUID(1L, Long.MIN_VALUE), ClickIdGenerator.next()));
+        for (int i = 0; i < 1000; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        for (UUID id : ids) {
+            String encoded = ClickIdGenerator.encode(id);
+            assertEquals(26, encoded.length());
+            assertEquals(id, ClickIdGenerator.decode(encoded));
+        }
+    }
+
+    @Test
+    void firstCharacterCarriesOnlyThreeBits() {
+        assertEquals("00000000000000000000000000", ClickIdGenerator.encode(new UUID(0L, 0L)));
+        assertEquals("7ZZZZZZZZZZZZZZZZZZZZZZZZZ", ClickIdGenerator.encode(new UUID(-1L, -1L)));
+        assertEquals(new UUID(-1L, -1L), ClickIdGenerator.decode("7ZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("8ZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("Z0000000000000000000000000"));
+    }
+
+    @Test
+    void decodeAcceptsCrockfordAliasesAndLowerCase() {
+        UUID one = new UUID(0L, 1L);
+        assertEquals("00000000000000000000000001", ClickIdGenerator.encode(one));
+        assertEquals(one, ClickIdGenerator.decode("OOOOOOOOOOOOOOOOOOOOOOOOOI"));
+        assertEquals(one, ClickIdGenerator.decode("oooooooooooooooooooooooooL"));
+        assertEquals(one, ClickIdGenerator.decode("0000000000000000000000000l"));
+        assertEquals(one, ClickIdGenerator.decode("0000000000000000000000000i"));
+
+        UUID id = ClickIdGenerator.next();
+        assertEquals(id, ClickIdGenerator.decode(ClickIdGenerator.encode(id).toLowerCase(Locale.ROOT)));
+    }
+
+    @Test
+    void decodeAcceptsLegacyUuidForm() {
+        UUID id = UUID.randomUUID();
+        assertEquals(id, ClickIdGenerator.decode(id.toString()));
+        assertEquals(id, ClickIdGenerator.decode(id.toString().toUpperCase(Locale.ROOT)));
+    }
+
+    @Test
+    void decodeRejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("0000000000000000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("000000000000000000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("0000000000000000000000000U"));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("0000000000000000000000000-"));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("0000000000000000000000000é"));
+        assertThrows(IllegalArgumentException.class, () -> ClickIdGenerator.decode("not-a-uuid-at-all-but-36-chars-long!"));
+    }
+
+    @Test
+    void nextHasVersion7LayoutAndCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = ClickIdGenerator.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        // 同一毫秒序号用尽时会借用之后的毫秒，大量生成后时间戳可能略超前于系统时钟
+        assertTrue(millis >= before && millis <= after + 1000, "timestamp " + millis + " outside " + before + ".." + after);
+    }
+
+    @Test
+    void nextIsStrictlyIncreasingUnderConcurrency() throws Exception {
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<String> ids = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(ClickIdGenerator.nextEncoded());
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        Set<Long> stamps = new HashSet<>();
+        try {
+            for (Future<List<String>> future : futures) {
+                List<String> ids = future.get(30, TimeUnit.SECONDS);
+                for (int i = 1; i < ids.size(); i++) {
+                    assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0,
+                            ids.get(i - 1) + " is not before " + ids.get(i));
+                }
+                for (String id : ids) {
+                    // 时间戳+序号全局唯一，说明各线程拿到的位置互不重叠
+                    assertTrue(stamps.add(ClickIdGenerator.decode(id).getMostSignificantBits()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, stamps.size());
+    }
+}